@@ -0,0 +1,44 @@
+package agency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Sélection coûteuse sur une flotte d'un million de véhicules répartie sur 1 à 8 partitions en mémoire,
+ * comparée à la même sélection sur une seule agence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgencyClusterBenchmark {
+    @Param({"1", "2", "4", "8"})
+    int shards;
+
+    AgencyCluster cluster;
+    Predicate<AbstractVehicle> expensiveCriterion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cluster = AgencyCluster.local(shards, ShardingStrategy.byKey(AbstractVehicle::getModel));
+        for (AbstractVehicle vehicle : FleetGenerator.generate(1_000_000)) {
+            cluster.add(vehicle);
+        }
+        expensiveCriterion = vehicle -> vehicle.toString().hashCode() % 7 == 0;
+    }
+
+    @Benchmark
+    public List<AbstractVehicle> selectExpensive() {
+        return cluster.select(expensiveCriterion);
+    }
+
+    @Benchmark
+    public AgencyStatistics.Summary total() {
+        return cluster.total();
+    }
+}
@@ -0,0 +1,46 @@
+package agency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parcours complets par marque et par prix : flotte objet contre flotte en colonnes.
+ * L'occupation mémoire des deux représentations est mesurée par {@link FleetFootprint}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnarFleetBenchmark {
+    @Param({"100000", "1000000"})
+    int fleetSize;
+
+    List<AbstractVehicle> fleet;
+    ColumnarFleet columnar;
+    Criterion brandAndPrice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = FleetGenerator.generate(fleetSize);
+        columnar = ColumnarFleet.of(fleet);
+        brandAndPrice = new BrandCriterion("Ferrari").or(new MaxPriceCriterion(60));
+    }
+
+    @Benchmark
+    public long objectScanBrandOrPrice() {
+        long count = 0;
+        for (AbstractVehicle vehicle : fleet) {
+            if (brandAndPrice.test(vehicle)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int columnarScanBrandOrPrice() {
+        return columnar.rows(brandAndPrice).length;
+    }
+}
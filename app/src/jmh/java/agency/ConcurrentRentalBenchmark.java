@@ -0,0 +1,81 @@
+package agency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Débit des locations/retours concurrents : chaque thread loue dans sa propre tranche de la flotte,
+ * le débit total doit croître avec le nombre de threads (comparer les résultats de 1, 4 et tous les cœurs).
+ * La flotte doit compter au moins une tranche de 1024 véhicules par thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentRentalBenchmark {
+    private static final int SLICE = 1024;
+
+    @Param({"100000"})
+    int fleetSize;
+
+    List<AbstractVehicle> fleet;
+    RentalAgency agency;
+    final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = FleetGenerator.generate(fleetSize);
+        agency = new RentalAgency(fleet);
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+        Client client;
+        int offset;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentRentalBenchmark benchmark) {
+            int index = benchmark.threads.getAndIncrement();
+            client = new Client("Thread", "t" + index, 1980);
+            offset = index * SLICE;
+            if (offset + SLICE > benchmark.fleet.size()) {
+                throw new IllegalStateException("Fleet too small for " + (index + 1) + " threads: " + benchmark.fleet.size());
+            }
+        }
+
+        AbstractVehicle next(List<AbstractVehicle> fleet) {
+            cursor = (cursor + 1) & (SLICE - 1);
+            return fleet.get(offset + cursor);
+        }
+    }
+
+    private double rentThenReturn(Renter renter) {
+        double price = agency.rentVehicle(renter.client, renter.next(fleet));
+        agency.returnVehicle(renter.client);
+        return price;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double rentThenReturn1Thread(Renter renter) {
+        return rentThenReturn(renter);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double rentThenReturn4Threads(Renter renter) {
+        return rentThenReturn(renter);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public double rentThenReturnAllCores(Renter renter) {
+        return rentThenReturn(renter);
+    }
+}
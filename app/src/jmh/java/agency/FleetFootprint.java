@@ -0,0 +1,42 @@
+package agency;
+
+import java.util.List;
+
+/**
+ * Mesure l'occupation du tas d'une flotte objet et le surcoût de sa représentation en colonnes, qui
+ * référence les mêmes véhicules.
+ * Affiche une ligne JSON par taille de flotte (lancer avec `gradle fleetFootprint`).
+ */
+public final class FleetFootprint {
+    private FleetFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100_000, 1_000_000, 10_000_000} : parse(args);
+        for (int size : sizes) {
+            long before = usedHeap();
+            List<AbstractVehicle> fleet = FleetGenerator.generate(size);
+            long objectBytes = usedHeap() - before;
+            ColumnarFleet columnar = ColumnarFleet.of(fleet);
+            long columnarBytes = usedHeap() - before - objectBytes;
+            System.out.printf("{\"fleetSize\": %d, \"objectBytes\": %d, \"columnarBytes\": %d, \"columnarEstimatedBytes\": %d}%n",
+                    size, objectBytes, columnarBytes, columnar.estimatedBytes());
+        }
+    }
+
+    private static int[] parse(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
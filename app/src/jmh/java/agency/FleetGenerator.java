@@ -0,0 +1,68 @@
+package agency;
+
+import util.TimeProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Génère des flottes synthétiques reproductibles pour les benchmarks.
+ * Tous les véhicules générés sont distincts (le modèle porte l'indice du véhicule).
+ */
+public final class FleetGenerator {
+    public static final String[] BRANDS = {
+            "Renault", "Peugeot", "Citroen", "Fiat", "Ferrari", "BMW", "Audi", "Mercedes", "Volkswagen", "Toyota",
+            "Honda", "Yamaha", "Kawasaki", "Suzuki", "Ducati", "Tesla", "Dacia", "Skoda", "Seat", "Opel"
+    };
+    private static final String[] MODELS = {"City", "Sport", "Touring", "Family", "Roadster", "Van", "Trail", "Classic"};
+    private static final long DEFAULT_SEED = 42L;
+
+    private FleetGenerator() {
+    }
+
+    /**
+     * Génère une flotte de size véhicules avec la graine par défaut
+     * @param size le nombre de véhicules
+     * @return la flotte générée
+     */
+    public static List<AbstractVehicle> generate(int size) {
+        return generate(size, DEFAULT_SEED);
+    }
+
+    /**
+     * Génère une flotte de size véhicules (environ 3/4 de voitures, 1/4 de motos)
+     * @param size le nombre de véhicules
+     * @param seed la graine du générateur pseudo-aléatoire
+     * @return la flotte générée
+     */
+    public static List<AbstractVehicle> generate(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int currentYear = TimeProvider.currentYearValue();
+        List<AbstractVehicle> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            String model = MODELS[random.nextInt(MODELS.length)] + "-" + i;
+            int year = currentYear - random.nextInt(25);
+            if (random.nextInt(4) == 0) {
+                fleet.add(new Motorbike(brand, model, year, 50 + random.nextInt(1200)));
+            } else {
+                fleet.add(new Car(brand, model, year, 1 + random.nextInt(8)));
+            }
+        }
+        return fleet;
+    }
+
+    /**
+     * Génère des clients distincts
+     * @param size le nombre de clients
+     * @return les clients générés
+     */
+    public static List<Client> clients(int size) {
+        List<Client> clients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            clients.add(new Client("Client", "n" + i, 1950 + i % 55));
+        }
+        return clients;
+    }
+}
@@ -0,0 +1,72 @@
+package agency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recalcul des prix de toute une flotte : un appel virtuel par véhicule contre un calcul par lot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingEngineBenchmark {
+    @Param({"1000000"})
+    int fleetSize;
+
+    List<AbstractVehicle> fleet;
+    ColumnarFleet columnar;
+    PricingEngine rules;
+    double[] prices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = FleetGenerator.generate(fleetSize);
+        columnar = ColumnarFleet.of(fleet);
+        Properties table = new Properties();
+        table.setProperty("brand.Ferrari", "1.5");
+        table.setProperty("brand.Tesla", "1.2");
+        table.setProperty("type.motorbike", "0.9");
+        table.setProperty("month.7", "1.3");
+        rules = RuleTablePricingEngine.fromRules(table);
+        prices = new double[fleetSize];
+    }
+
+    @Benchmark
+    public double[] perVehicleVirtualCall() {
+        int row = 0;
+        for (AbstractVehicle vehicle : fleet) {
+            prices[row++] = vehicle.dailyRentalPrice();
+        }
+        return prices;
+    }
+
+    @Benchmark
+    public double[] defaultEngineOnObjects() {
+        RuleTablePricingEngine.DEFAULT.computePrices(fleet, prices);
+        return prices;
+    }
+
+    @Benchmark
+    public double[] defaultEngineOnColumns() {
+        RuleTablePricingEngine.DEFAULT.computePrices(columnar, prices);
+        return prices;
+    }
+
+    @Benchmark
+    public double[] ruleTableEngineOnObjects() {
+        rules.computePrices(fleet, prices);
+        return prices;
+    }
+
+    @Benchmark
+    public double[] ruleTableEngineOnColumns() {
+        rules.computePrices(columnar, prices);
+        return prices;
+    }
+}
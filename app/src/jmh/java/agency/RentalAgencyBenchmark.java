@@ -0,0 +1,262 @@
+package agency;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Benchmarks mono-thread des chemins chauds de l'agence, pour des flottes de 1k à 1M véhicules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RentalAgencyBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int fleetSize;
+
+    List<AbstractVehicle> fleet;
+    RentalAgency agency;
+    RentalAgency meteredAgency;
+    RentalAgency observedAgency;
+    AgencyChangeFeed changeFeed;
+    AbstractVehicle extra;
+    Client client;
+    BrandCriterion brandCriterion;
+    MaxPriceCriterion maxPriceCriterion;
+    Predicate<AbstractVehicle> expensiveCriterion;
+    Map<Client, AbstractVehicle> batch;
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = FleetGenerator.generate(fleetSize);
+        agency = new RentalAgency(fleet);
+        meteredAgency = new RentalAgency(fleet);
+        meteredAgency.enableMetrics();
+        observedAgency = new RentalAgency(fleet);
+        changeFeed = observedAgency.changeFeed(AgencyChangeFeed.SlowSubscriberPolicy.BLOCK);
+        changeFeed.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<AgencyEvent> batch) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        extra = new Car("Benchmark", "Extra", 2020, 4);
+        client = new Client("Bench", "Mark", 1980);
+        brandCriterion = new BrandCriterion("Ferrari");
+        maxPriceCriterion = new MaxPriceCriterion(60);
+        expensiveCriterion = vehicle -> vehicle.toString().hashCode() % 7 == 0;
+        batch = new LinkedHashMap<>();
+        List<Client> clients = FleetGenerator.clients(Math.min(fleetSize, 1000));
+        for (int i = 0; i < clients.size(); i++) {
+            batch.put(clients.get(i), fleet.get(i));
+        }
+    }
+
+    private AbstractVehicle nextVehicle() {
+        cursor = (cursor + 7919) % fleetSize;
+        return fleet.get(cursor);
+    }
+
+    /**
+     * Chargement complet d'une agence par appels successifs à add
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public RentalAgency loadFleetWithAdd() {
+        RentalAgency loaded = new RentalAgency();
+        for (AbstractVehicle vehicle : fleet) {
+            loaded.add(vehicle);
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public void addThenRemove() {
+        agency.add(extra);
+        agency.remove(extra);
+    }
+
+    @Benchmark
+    public boolean containsPresent() {
+        return agency.contains(nextVehicle());
+    }
+
+    @Benchmark
+    public boolean containsAbsent() {
+        return agency.contains(extra);
+    }
+
+    /**
+     * Page de catalogue lue sur l'instantané de la flotte, sans copie
+     */
+    @Benchmark
+    public List<AbstractVehicle> catalogPage() {
+        return agency.getVehicles().subList(fleetSize / 2, fleetSize / 2 + 50);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> selectByBrand() {
+        return agency.select(brandCriterion);
+    }
+
+    /**
+     * Les 20 voitures les moins chères d'une marque, par tri complet de la sélection
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> cheapestOfBrandBySort() {
+        List<AbstractVehicle> selected = new ArrayList<>(agency.select(brandCriterion));
+        selected.sort(VehicleOrder.CHEAPEST_FIRST);
+        return selected.subList(0, Math.min(20, selected.size()));
+    }
+
+    /**
+     * Même requête par {@link RentalAgency#selectTopK(Predicate, java.util.Comparator, int)} (parcours de l'index des prix)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> cheapestOfBrandTopK() {
+        return agency.selectTopK(brandCriterion, VehicleOrder.CHEAPEST_FIRST, 20);
+    }
+
+    /**
+     * Les 20 véhicules les plus récents d'une marque (tas borné)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> newestOfBrandTopK() {
+        return agency.selectTopK(brandCriterion, VehicleOrder.NEWEST_FIRST, 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> selectByMaxPrice() {
+        return agency.select(maxPriceCriterion);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> selectByBrandAndMaxPrice() {
+        return agency.select(brandCriterion.and(maxPriceCriterion));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> selectExpensive() {
+        return agency.select(expensiveCriterion);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<AbstractVehicle> selectParallelExpensive() {
+        return agency.selectParallel(expensiveCriterion);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long forEachSelectedExpensive(Blackhole blackhole) {
+        return agency.forEachSelected(expensiveCriterion, blackhole::consume);
+    }
+
+    @Benchmark
+    public double rentThenReturn() {
+        double price = agency.rentVehicle(client, nextVehicle());
+        agency.returnVehicle(client);
+        return price;
+    }
+
+    /**
+     * Même opération avec les métriques actives, pour mesurer leur coût
+     */
+    @Benchmark
+    public double rentThenReturnWithMetrics() {
+        double price = meteredAgency.rentVehicle(client, nextVehicle());
+        meteredAgency.returnVehicle(client);
+        return price;
+    }
+
+    /**
+     * Location refusée d'un véhicule absent de l'agence, signalée par exception
+     */
+    @Benchmark
+    public Object rejectedRentVehicle() {
+        try {
+            return agency.rentVehicle(client, extra);
+        } catch (UnknownVehicleException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Même refus, signalé par {@link RentalAgency#tryRent(Client, AbstractVehicle)}
+     */
+    @Benchmark
+    public RentalResult rejectedTryRent() {
+        return agency.tryRent(client, extra);
+    }
+
+    /**
+     * Même opération avec un abonné au flux des modifications, pour mesurer le coût de la publication
+     */
+    @Benchmark
+    public double rentThenReturnWithChangeFeed() {
+        double price = observedAgency.rentVehicle(client, nextVehicle());
+        observedAgency.returnVehicle(client);
+        return price;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        changeFeed.close();
+    }
+
+    /**
+     * Location puis retour d'un lot de 1000 véhicules (contrats de flotte)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] rentThenReturnBatch() {
+        double[] prices = agency.rentVehicles(batch);
+        agency.returnVehicles(batch.keySet());
+        return prices;
+    }
+
+    /**
+     * Chiffre d'affaires journalier lu sur les agrégats tenus à jour par l'agence
+     */
+    @Benchmark
+    public double dailyRevenue() {
+        return agency.statistics().dailyRevenue();
+    }
+
+    @Benchmark
+    public void vehicleToString(Blackhole blackhole) {
+        blackhole.consume(nextVehicle().toString());
+    }
+}
@@ -0,0 +1,99 @@
+package agency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Débit des locations/retours journalisés : avec la validation groupée, le débit en mode SYNC doit croître
+ * avec le nombre de threads (un seul force sur disque pour tous les enregistrements en attente).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RentalJournalBenchmark {
+    private static final int SLICE = 1024;
+    private static final int MAX_THREADS = 256;
+
+    @Param({"SYNC", "ASYNC"})
+    RentalJournal.Durability durability;
+
+    Path directory;
+    List<AbstractVehicle> fleet;
+    RentalJournal journal;
+    RentalAgency agency;
+    final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rental-journal");
+        fleet = FleetGenerator.generate(SLICE * MAX_THREADS);
+        SnapshotStore.write(new RentalAgency(fleet), directory.resolve(RentalJournal.SNAPSHOT_FILE));
+        journal = RentalJournal.open(directory, durability);
+        agency = journal.agency();
+        fleet = agency.getVehicles();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+        Client client;
+        int offset;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(RentalJournalBenchmark benchmark) {
+            int index = benchmark.threads.getAndIncrement();
+            client = new Client("Thread", "t" + index, 1980);
+            offset = (index % MAX_THREADS) * SLICE;
+        }
+
+        AbstractVehicle next(List<AbstractVehicle> fleet) {
+            cursor = (cursor + 1) & (SLICE - 1);
+            return fleet.get(offset + cursor);
+        }
+    }
+
+    private double rentThenReturn(Renter renter) {
+        double price = agency.rentVehicle(renter.client, renter.next(fleet));
+        agency.returnVehicle(renter.client);
+        return price;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double rentThenReturn1Thread(Renter renter) {
+        return rentThenReturn(renter);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double rentThenReturn16Threads(Renter renter) {
+        return rentThenReturn(renter);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public double rentThenReturn64Threads(Renter renter) {
+        return rentThenReturn(renter);
+    }
+}
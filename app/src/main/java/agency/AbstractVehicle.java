@@ -2,10 +2,13 @@ package agency;
 
 import util.TimeProvider;
 
+import java.util.Objects;
+
 public abstract class AbstractVehicle {
     private String brand;
     private String model;
     private int productionYear;
+    private final int hash;
 
     public AbstractVehicle(String brand, String model, int productionYear) {
         if (productionYear < 1900 || productionYear > TimeProvider.currentYearValue()) {
@@ -15,6 +18,7 @@ public abstract class AbstractVehicle {
         this.brand = brand;
         this.model = model;
         this.productionYear = productionYear;
+        this.hash = Objects.hash(getClass().getName(), brand, model, productionYear);
     }
 
 
@@ -27,6 +31,15 @@ public abstract class AbstractVehicle {
         return brand;
     }
 
+    /**
+     * renvoie le modèle du véhicule sous la forme d’une chaîne de caractères
+     *
+     * @return le modèle du véhicule
+     */
+    public String getModel() {
+        return model;
+    }
+
     /**
      * renvoie l’année de production du véhicule
      *
@@ -61,20 +74,52 @@ public abstract class AbstractVehicle {
             return false;
         }
         AbstractVehicle v = (AbstractVehicle) o;
-        return v.brand.equals(brand) && v.model.equals(model) && v.productionYear == productionYear;
+        return Objects.equals(v.brand, brand) && Objects.equals(v.model, model) && v.productionYear == productionYear;
 
     }
 
+    /**
+     * renvoie le hash du véhicule, cohérent avec equals : il ne dépend que de la classe,
+     * de la marque, du modèle et de l’année de production (calculé une fois à la construction)
+     *
+     * @return le hash du véhicule
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     public String getDetails() {
         return "";
     }
 
+    /**
+     * ajoute les détails du véhicule au tampon, sans chaîne intermédiaire pour les sous-classes qui la redéfinissent
+     *
+     * @param builder le tampon
+     * @return le tampon
+     */
+    protected StringBuilder appendDetails(StringBuilder builder) {
+        return builder.append(getDetails());
+    }
+
+    /**
+     * ajoute la description du véhicule au tampon, telle que renvoyée par {@link #toString()}
+     *
+     * @param builder le tampon
+     * @return le tampon
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        builder.append(brand).append(' ').append(model).append(' ').append(productionYear).append(' ');
+        return appendDetails(builder).append(": ").append(dailyRentalPrice()).append('€');
+    }
+
     /**
      * renvoie une chaîne de caractères décrivant le véhicule
      *
      * @return une chaîne de caractères décrivant le véhicule
      */
     public String toString() {
-        return brand + " " + model + " " + productionYear + " " + getDetails() + ": " + dailyRentalPrice() + "€";
+        return appendTo(new StringBuilder(64)).toString();
     }
 }
@@ -0,0 +1,257 @@
+package agency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Flux des modifications d'une {@link RentalAgency} (ajouts, retraits, locations et retours), publié par lots
+ * d'{@link AgencyEvent} avec la contre-pression de {@link Flow}.
+ * <p>
+ * Les opérations déposent leurs événements dans une file sans verrou ; en se terminant, hors des verrous de
+ * l'agence, l'une d'elles à la fois vide la file, numérote les événements dans l'ordre de la file et les publie
+ * par lots d'au plus maxBatchSize événements, que les opérations concurrentes partagent. Les autres opérations
+ * repartent aussitôt : elles ne s'attendent pas entre elles à cause du flux. Chaque abonné dispose d'un tampon
+ * borné de lots, vidé sur l'exécuteur du flux au rythme de ses demandes ; quand ce tampon est plein, la
+ * {@link SlowSubscriberPolicy} s'applique.
+ * <p>
+ * Pour tenir un cache à jour, un abonné s'abonne, puis lit {@link RentalAgency#snapshot()} et
+ * {@link RentalAgency#allRentedVehicles()}, puis applique les événements reçus : ceux qui précèdent la lecture
+ * sont déjà pris en compte, et leur application (ajout ou retrait d'un véhicule, d'une location) est idempotente.
+ * Les événements d'un même véhicule ou d'un même client sont publiés dans l'ordre où l'agence les a appliqués
+ * (voir {@link AgencyListener}). Les réservations datées ne sont pas publiées.
+ */
+public final class AgencyChangeFeed implements AgencyListener, Flow.Publisher<List<AgencyEvent>>, AutoCloseable {
+    /**
+     * Comportement face à un abonné dont le tampon est plein
+     */
+    public enum SlowSubscriberPolicy {
+        /**
+         * L'opération qui vide la file attend que l'abonné le plus lent libère de la place, et une opération qui
+         * se termine alors que la file compte plus d'événements que les tampons des abonnés n'en contiennent
+         * attend son tour pour la vider : aucun événement n'est perdu, mais l'agence avance au rythme de cet
+         * abonné (un abonné ne doit alors jamais modifier l'agence depuis {@link Flow.Subscriber#onNext(Object)})
+         */
+        BLOCK,
+        /**
+         * L'abonné trop lent est désabonné et reçoit une {@link IllegalStateException} par
+         * {@link Flow.Subscriber#onError(Throwable)} : il doit relire l'agence puis se réabonner ;
+         * les autres abonnés et l'agence ne sont pas ralentis
+         */
+        DISCONNECT
+    }
+
+    private final RentalAgency agency;
+    private final SubmissionPublisher<List<AgencyEvent>> publisher;
+    private final SlowSubscriberPolicy policy;
+    private final int maxBatchSize;
+    private final long backlogLimit;
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong backlog = new AtomicLong();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private long nextSequence;
+
+    private AgencyChangeFeed(RentalAgency agency, Executor executor, SlowSubscriberPolicy policy,
+                             int bufferCapacity, int maxBatchSize) {
+        this.agency = agency;
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+        this.policy = policy;
+        this.maxBatchSize = maxBatchSize;
+        this.backlogLimit = (long) bufferCapacity * maxBatchSize;
+    }
+
+    /**
+     * Crée un flux et l'attache à l'agence
+     * @param agency l'agence
+     * @param executor l'exécuteur des livraisons aux abonnés
+     * @param policy le comportement face à un abonné trop lent
+     * @param bufferCapacity le nombre maximal de lots en attente par abonné
+     * @param maxBatchSize le nombre maximal d'événements par lot
+     * @return le flux, attaché à l'agence
+     * @throws IllegalArgumentException si bufferCapacity ou maxBatchSize n'est pas positif
+     */
+    public static AgencyChangeFeed attach(RentalAgency agency, Executor executor, SlowSubscriberPolicy policy,
+                                          int bufferCapacity, int maxBatchSize) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("Invalid batch size: " + maxBatchSize);
+        AgencyChangeFeed feed = new AgencyChangeFeed(agency, executor, policy, bufferCapacity, maxBatchSize);
+        agency.addListener(feed);
+        return feed;
+    }
+
+    /**
+     * Abonne un consommateur aux modifications suivantes de l'agence
+     * @param subscriber l'abonné
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<AgencyEvent>> subscriber) {
+        publisher.subscribe(policy == SlowSubscriberPolicy.DISCONNECT ? new Disconnectable(subscriber) : subscriber);
+    }
+
+    /**
+     * Retourne le nombre d'abonnés
+     * @return le nombre d'abonnés
+     */
+    public int subscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Détache le flux de l'agence, publie les derniers événements et termine les abonnements
+     * ({@link Flow.Subscriber#onComplete()} une fois leurs tampons vidés)
+     */
+    @Override
+    public void close() {
+        agency.removeListener(this);
+        drainLock.lock();
+        try {
+            if (publisher.isClosed()) return;
+            flush();
+            publisher.close();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void vehicleAdded(AbstractVehicle vehicle) {
+        append(AgencyEvent.Type.VEHICLE_ADDED, vehicle, null);
+    }
+
+    @Override
+    public void vehicleRemoved(AbstractVehicle vehicle) {
+        append(AgencyEvent.Type.VEHICLE_REMOVED, vehicle, null);
+    }
+
+    @Override
+    public void vehicleRented(Client client, AbstractVehicle vehicle) {
+        append(AgencyEvent.Type.VEHICLE_RENTED, vehicle, client);
+    }
+
+    @Override
+    public void vehicleReturned(Client client, AbstractVehicle vehicle) {
+        append(AgencyEvent.Type.VEHICLE_RETURNED, vehicle, client);
+    }
+
+    @Override
+    public void operationCompleted() {
+        if (policy == SlowSubscriberPolicy.BLOCK && backlog.get() > backlogLimit) {
+            drainLock.lock();
+            drain();
+        }
+        // une seule opération vide la file ; celle qui la libère revérifie la file pour ne rien laisser en attente
+        while (!pending.isEmpty() && drainLock.tryLock()) {
+            drain();
+        }
+    }
+
+    private void append(AgencyEvent.Type type, AbstractVehicle vehicle, Client client) {
+        // sans abonné, les événements ne sont pas conservés : un nouvel abonné part d'une lecture de l'agence
+        if (!publisher.hasSubscribers()) return;
+        // déposé sous le verrou de l'opération : la file suit l'ordre des modifications de chaque véhicule
+        pending.add(new Change(type, vehicle, client));
+        backlog.incrementAndGet();
+    }
+
+    /**
+     * Vide la file puis libère le verrou de vidange, que l'appelant détient
+     */
+    private void drain() {
+        try {
+            if (!publisher.isClosed()) {
+                flush();
+            } else {
+                // une opération en cours pendant close() peut encore se terminer ici
+                pending.clear();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void flush() {
+        Change change = pending.poll();
+        while (change != null) {
+            List<AgencyEvent> events = new ArrayList<>(maxBatchSize);
+            do {
+                events.add(new AgencyEvent(nextSequence++, change.type(), change.vehicle(), change.client()));
+                change = pending.poll();
+            } while (change != null && events.size() < maxBatchSize);
+            List<AgencyEvent> batch = List.copyOf(events);
+            if (policy == SlowSubscriberPolicy.BLOCK) {
+                publisher.submit(batch);
+            } else {
+                publisher.offer(batch, (subscriber, dropped) -> {
+                    ((Disconnectable) subscriber).overflow();
+                    return false;
+                });
+            }
+            backlog.addAndGet(-batch.size());
+        }
+    }
+
+    /**
+     * Modification en attente de publication, numérotée par la vidange
+     */
+    private record Change(AgencyEvent.Type type, AbstractVehicle vehicle, Client client) {
+    }
+
+    /**
+     * Abonné intermédiaire de la politique {@link SlowSubscriberPolicy#DISCONNECT} : sur débordement, il résilie
+     * son abonnement et signale l'erreur à l'abonné final sur l'exécuteur du flux, après le lot en cours de livraison
+     */
+    private final class Disconnectable implements Flow.Subscriber<List<AgencyEvent>> {
+        private final Flow.Subscriber<? super List<AgencyEvent>> subscriber;
+        private volatile Flow.Subscription subscription;
+        private volatile boolean overflowed;
+        private boolean terminated;
+
+        Disconnectable(Flow.Subscriber<? super List<AgencyEvent>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscriber.onSubscribe(subscription);
+            // débordement survenu avant l'abonnement effectif
+            if (overflowed) disconnect(subscription);
+        }
+
+        @Override
+        public synchronized void onNext(List<AgencyEvent> batch) {
+            if (!overflowed && !terminated) subscriber.onNext(batch);
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            if (terminated) return;
+            terminated = true;
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (terminated || overflowed) return;
+            terminated = true;
+            subscriber.onComplete();
+        }
+
+        void overflow() {
+            if (overflowed) return;
+            overflowed = true;
+            Flow.Subscription current = subscription;
+            if (current != null) disconnect(current);
+        }
+
+        private void disconnect(Flow.Subscription current) {
+            current.cancel();
+            publisher.getExecutor().execute(() -> onError(new IllegalStateException("Change feed subscriber too slow")));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package agency;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Façade répartissant une flotte sur plusieurs {@link AgencyShard}, par exemple une agence par ville.
+ * <p>
+ * Chaque véhicule appartient à la partition désignée par la {@link ShardingStrategy} : ajouts, retraits et
+ * locations y sont routés directement. Les sélections et les agrégats interrogent toutes les partitions
+ * en parallèle sur l'{@link Executor} du cluster (le pool fork-join commun par défaut ; un exécuteur dédié
+ * convient mieux à des partitions distantes), puis fusionnent les réponses dans l'ordre des partitions.
+ * <p>
+ * La règle d'un véhicule loué par client vaut pour tout le cluster : le cluster retient la partition de la
+ * location de chaque client, ce qui route aussi les retours.
+ */
+public class AgencyCluster {
+    private final List<AgencyShard> shards;
+    private final ShardingStrategy strategy;
+    private final Executor executor;
+    private final Map<Client, Route> renters = new ConcurrentHashMap<>();
+
+    /**
+     * Construit un cluster interrogeant ses partitions sur le pool fork-join commun
+     * @param shards les partitions
+     * @param strategy la règle de répartition des véhicules
+     */
+    public AgencyCluster(List<? extends AgencyShard> shards, ShardingStrategy strategy) {
+        this(shards, strategy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construit un cluster
+     * @param shards les partitions
+     * @param strategy la règle de répartition des véhicules
+     * @param executor l'exécuteur des requêtes envoyées à toutes les partitions
+     * @throws IllegalArgumentException si aucune partition n'est donnée
+     */
+    public AgencyCluster(List<? extends AgencyShard> shards, ShardingStrategy strategy, Executor executor) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("A cluster needs at least one shard");
+        this.shards = List.copyOf(shards);
+        this.strategy = Objects.requireNonNull(strategy);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Construit un cluster de partitions en mémoire, une {@link RentalAgency} vide par partition
+     * @param shardCount le nombre de partitions
+     * @param strategy la règle de répartition des véhicules
+     * @return le cluster
+     */
+    public static AgencyCluster local(int shardCount, ShardingStrategy strategy) {
+        List<AgencyShard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(AgencyShard.local(new RentalAgency()));
+        }
+        return new AgencyCluster(shards, strategy);
+    }
+
+    /**
+     * Retourne le nombre de partitions
+     * @return le nombre de partitions
+     */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Retourne une partition
+     * @param index l'indice de la partition
+     * @return la partition
+     */
+    public AgencyShard shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * Retourne l'indice de la partition à laquelle appartient un véhicule
+     * @param vehicle le véhicule
+     * @return l'indice de la partition
+     */
+    public int shardOf(AbstractVehicle vehicle) {
+        return Objects.checkIndex(strategy.shardOf(vehicle, shards.size()), shards.size());
+    }
+
+    private AgencyShard owner(AbstractVehicle vehicle) {
+        return shards.get(shardOf(vehicle));
+    }
+
+    /**
+     * Ajoute un véhicule à sa partition si il n'est pas déjà présent
+     * @param vehicle le véhicule
+     * @return true si le véhicule a été ajouté, false sinon
+     */
+    public boolean add(AbstractVehicle vehicle) {
+        return owner(vehicle).add(vehicle);
+    }
+
+    /**
+     * Supprime un véhicule de sa partition
+     * @param vehicle le véhicule
+     * @throws UnknownVehicleException si le véhicule n'est pas présent dans le cluster
+     */
+    public void remove(AbstractVehicle vehicle) {
+        owner(vehicle).remove(vehicle);
+    }
+
+    /**
+     * Retourne true si le véhicule est présent dans le cluster
+     * @param vehicle le véhicule
+     * @return true si le véhicule est présent, false sinon
+     */
+    public boolean contains(AbstractVehicle vehicle) {
+        return owner(vehicle).contains(vehicle);
+    }
+
+    /**
+     * Retourne les véhicules du cluster qui satisfont le critère : ceux de la première partition dans leur
+     * ordre d'ajout, puis ceux de la deuxième, etc.
+     * @param criterion le critère, qui doit pouvoir être évalué depuis plusieurs threads
+     * @return les véhicules sélectionnés
+     */
+    public List<AbstractVehicle> select(Predicate<AbstractVehicle> criterion) {
+        List<List<AbstractVehicle>> parts = onAllShards(shard -> shard.select(criterion));
+        int size = 0;
+        for (List<AbstractVehicle> part : parts) {
+            size += part.size();
+        }
+        List<AbstractVehicle> selected = new ArrayList<>(size);
+        for (List<AbstractVehicle> part : parts) {
+            selected.addAll(part);
+        }
+        return selected;
+    }
+
+    /**
+     * Loue un véhicule à un client, dans la partition du véhicule
+     * @param client le client
+     * @param vehicle le véhicule
+     * @return le prix journalier de location
+     * @throws UnknownVehicleException si le véhicule n'est pas présent dans le cluster
+     * @throws IllegalStateException si le véhicule est déjà loué ou si le client loue déjà un véhicule du cluster
+     */
+    public double rentVehicle(Client client, AbstractVehicle vehicle) {
+        Route route = new Route(shardOf(vehicle));
+        if (renters.putIfAbsent(client, route) != null) throw new IllegalStateException("Client already has a rented vehicle");
+        try {
+            return shards.get(route.shard).rentVehicle(client, vehicle);
+        } catch (RuntimeException e) {
+            renters.remove(client, route);
+            throw e;
+        }
+    }
+
+    /**
+     * Rend le véhicule loué par un client
+     * @param client le client
+     * @throws IllegalStateException si le client ne loue aucun véhicule du cluster
+     */
+    public void returnVehicle(Client client) {
+        // la location reste attribuée à sa partition jusqu'au retour effectif : le client ne peut pas louer
+        // ailleurs entre-temps, et un échec de la partition (distante, par exemple) la laisse en place
+        Route route = renters.get(client);
+        if (route == null) throw new IllegalStateException("Client has no rented vehicle");
+        try {
+            shards.get(route.shard).returnVehicle(client);
+        } catch (IllegalStateException e) {
+            // la partition ne connaît plus la location : un retour concurrent l'a rendue, ou le véhicule loué
+            // a été retiré, ce qui y a mis fin
+            renters.remove(client, route);
+            throw e;
+        }
+        renters.remove(client, route);
+    }
+
+    /**
+     * Retourne true si le client loue un véhicule du cluster
+     * @param client le client
+     * @return true si le client loue un véhicule, false sinon
+     */
+    public boolean aVehicleIsRentedBy(Client client) {
+        return renters.containsKey(client);
+    }
+
+    /**
+     * Retourne true si le véhicule est loué
+     * @param vehicle le véhicule
+     * @return true si le véhicule est loué, false sinon
+     */
+    public boolean vehicleIsRented(AbstractVehicle vehicle) {
+        return owner(vehicle).vehicleIsRented(vehicle);
+    }
+
+    /**
+     * Retourne les agrégats de tout le cluster
+     * @return les agrégats
+     */
+    public AgencyStatistics.Summary total() {
+        AgencyStatistics.Summary total = new AgencyStatistics.Summary(0, 0, 0);
+        for (AgencyStatistics.Summary summary : onAllShards(AgencyShard::total)) {
+            total = total.plus(summary);
+        }
+        return total;
+    }
+
+    /**
+     * Retourne les agrégats du cluster par marque
+     * @return les agrégats, par marque
+     */
+    public Map<String, AgencyStatistics.Summary> byBrand() {
+        return merge(onAllShards(AgencyShard::byBrand));
+    }
+
+    /**
+     * Retourne les agrégats du cluster par type de véhicule
+     * @return les agrégats, par type
+     */
+    public Map<Class<?>, AgencyStatistics.Summary> byType() {
+        return merge(onAllShards(AgencyShard::byType));
+    }
+
+    /**
+     * Partition de la location en cours d'un client ; chaque location a sa propre instance, pour qu'un retour
+     * ne retire jamais l'entrée d'une location suivante dans la même partition
+     */
+    private static final class Route {
+        final int shard;
+
+        Route(int shard) {
+            this.shard = shard;
+        }
+    }
+
+    private static <K> Map<K, AgencyStatistics.Summary> merge(List<Map<K, AgencyStatistics.Summary>> parts) {
+        Map<K, AgencyStatistics.Summary> merged = new HashMap<>();
+        for (Map<K, AgencyStatistics.Summary> part : parts) {
+            part.forEach((key, summary) -> merged.merge(key, summary, AgencyStatistics.Summary::plus));
+        }
+        return merged;
+    }
+
+    /**
+     * Exécute une requête sur toutes les partitions en parallèle, la dernière sur le thread appelant,
+     * et retourne les réponses dans l'ordre des partitions
+     */
+    private <T> List<T> onAllShards(Function<AgencyShard, T> query) {
+        int last = shards.size() - 1;
+        List<CompletableFuture<T>> pending = new ArrayList<>(last);
+        for (int i = 0; i < last; i++) {
+            AgencyShard shard = shards.get(i);
+            pending.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+        }
+        T lastResult = query.apply(shards.get(last));
+        List<T> results = new ArrayList<>(shards.size());
+        for (CompletableFuture<T> future : pending) {
+            results.add(join(future));
+        }
+        results.add(lastResult);
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package agency;
+
+/**
+ * Modification d'une {@link RentalAgency} publiée par un {@link AgencyChangeFeed}
+ * @param sequence le numéro de l'événement dans le flux, croissant et sans trou tant que l'abonné suit
+ * @param type la nature de la modification
+ * @param vehicle le véhicule concerné
+ * @param client le client, ou null pour un ajout ou un retrait de véhicule
+ */
+public record AgencyEvent(long sequence, Type type, AbstractVehicle vehicle, Client client) {
+    /**
+     * Nature d'une modification
+     */
+    public enum Type {
+        /** un véhicule a été ajouté à la flotte */
+        VEHICLE_ADDED,
+        /** un véhicule a été retiré de la flotte */
+        VEHICLE_REMOVED,
+        /** un véhicule a été loué */
+        VEHICLE_RENTED,
+        /** un véhicule a été rendu */
+        VEHICLE_RETURNED
+    }
+}
@@ -0,0 +1,69 @@
+package agency;
+
+/**
+ * Observateur des modifications d'une {@link RentalAgency}.
+ * <p>
+ * Chaque notification est émise par le thread qui fait la modification, juste avant de l'appliquer et dans
+ * la même section critique : sous le verrou de flotte pour les ajouts, sous le verrou du véhicule
+ * (voir {@link BookingCalendar}) pour les retraits, les locations, les retours et les réservations datées.
+ * Les modifications d'un même véhicule sont donc notifiées dans l'ordre où elles sont appliquées, et chacune
+ * une seule fois. Celles d'un même client aussi : un client ne loue un véhicule qu'une fois le retour du
+ * précédent notifié et appliqué. Rejouer les notifications dans leur ordre d'émission redonne l'état de l'agence.
+ * <p>
+ * Un observateur peut refuser une modification en levant une exception (un journal qui ne peut plus écrire,
+ * par exemple) : elle n'est alors pas appliquée, ou elle est annulée pour une location, les observateurs
+ * déjà notifiés reçoivent la notification inverse (retrait pour un ajout, retour pour une location...) et
+ * l'exception est propagée à l'appelant. Les notifications doivent être brèves ; une attente éventuelle
+ * (durabilité, par exemple) se fait dans {@link #operationCompleted()}, appelée hors de tout verrou.
+ */
+public interface AgencyListener {
+    /**
+     * Un véhicule a été ajouté à la flotte
+     * @param vehicle le véhicule
+     */
+    default void vehicleAdded(AbstractVehicle vehicle) {
+    }
+
+    /**
+     * Un véhicule a été retiré de la flotte
+     * @param vehicle le véhicule
+     */
+    default void vehicleRemoved(AbstractVehicle vehicle) {
+    }
+
+    /**
+     * Un véhicule a été loué
+     * @param client le client
+     * @param vehicle le véhicule
+     */
+    default void vehicleRented(Client client, AbstractVehicle vehicle) {
+    }
+
+    /**
+     * Un véhicule a été rendu
+     * @param client le client
+     * @param vehicle le véhicule
+     */
+    default void vehicleReturned(Client client, AbstractVehicle vehicle) {
+    }
+
+    /**
+     * Un véhicule a été réservé pour une période (notifié sous le moniteur du planning du véhicule)
+     * @param booking la réservation
+     */
+    default void vehicleBooked(Booking booking) {
+    }
+
+    /**
+     * Une réservation a été annulée (notifié sous le moniteur du planning du véhicule)
+     * @param booking la réservation
+     */
+    default void bookingCancelled(Booking booking) {
+    }
+
+    /**
+     * L'opération qui a émis les notifications précédentes de ce thread est terminée, les verrous sont relâchés
+     */
+    default void operationCompleted() {
+    }
+}
@@ -0,0 +1,146 @@
+package agency;
+
+import util.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques des chemins chauds d'une {@link RentalAgency} : compteurs d'opérations et de refus
+ * ({@link LongAdder}, sans contention entre cœurs) et histogrammes de latence de select, rentVehicle,
+ * returnVehicle et add.
+ * <p>
+ * Les métriques sont désactivées par défaut ({@link #DISABLED}) : l'agence ne fait alors qu'une lecture
+ * de champ et un test par opération, sans lire l'horloge. Elles s'activent avec {@link RentalAgency#enableMetrics()}
+ * et s'exportent en instantané ({@link #snapshot()}) ou au format texte de Prometheus ({@link Snapshot#toText()}).
+ */
+public final class AgencyMetrics {
+    /** métriques désactivées : rien n'est mesuré */
+    public static final AgencyMetrics DISABLED = new AgencyMetrics(false);
+
+    private final boolean enabled;
+    final LongAdder rents = new LongAdder();
+    final LongAdder returns = new LongAdder();
+    final LongAdder adds = new LongAdder();
+    final LongAdder selects = new LongAdder();
+    final LongAdder unknownVehicleRejections = new LongAdder();
+    final LongAdder illegalStateRejections = new LongAdder();
+    final LatencyHistogram selectLatency;
+    final LatencyHistogram rentLatency;
+    final LatencyHistogram returnLatency;
+    final LatencyHistogram addLatency;
+
+    private AgencyMetrics(boolean enabled) {
+        this.enabled = enabled;
+        selectLatency = enabled ? new LatencyHistogram() : null;
+        rentLatency = enabled ? new LatencyHistogram() : null;
+        returnLatency = enabled ? new LatencyHistogram() : null;
+        addLatency = enabled ? new LatencyHistogram() : null;
+    }
+
+    /**
+     * Crée des métriques actives, toutes à zéro
+     * @return les métriques
+     */
+    static AgencyMetrics enabled() {
+        return new AgencyMetrics(true);
+    }
+
+    /**
+     * Retourne true si les métriques sont actives
+     * @return true si les opérations sont mesurées
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Compte une opération refusée selon la nature du refus
+     */
+    void rejected(RuntimeException rejection) {
+        if (rejection instanceof UnknownVehicleException) {
+            unknownVehicleRejections.increment();
+        } else if (rejection instanceof IllegalStateException) {
+            illegalStateRejections.increment();
+        }
+    }
+
+    /**
+     * Compte une tentative de location refusée sans exception
+     */
+    void rejected(RentalResult rejection) {
+        if (rejection == RentalResult.UNKNOWN_VEHICLE) {
+            unknownVehicleRejections.increment();
+        } else {
+            illegalStateRejections.increment();
+        }
+    }
+
+    /**
+     * Retourne un instantané des compteurs et des histogrammes
+     * @return l'instantané (vide si les métriques sont désactivées)
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        Map<String, LatencyHistogram.Snapshot> latencies = new LinkedHashMap<>();
+        if (enabled) {
+            counters.put("rent", rents.sum());
+            counters.put("return", returns.sum());
+            counters.put("add", adds.sum());
+            counters.put("select", selects.sum());
+            counters.put("rejected_unknown_vehicle", unknownVehicleRejections.sum());
+            counters.put("rejected_illegal_state", illegalStateRejections.sum());
+            latencies.put("select", selectLatency.snapshot());
+            latencies.put("rent", rentLatency.snapshot());
+            latencies.put("return", returnLatency.snapshot());
+            latencies.put("add", addLatency.snapshot());
+        }
+        return new Snapshot(counters, latencies);
+    }
+
+    /**
+     * Instantané des métriques
+     * @param counters les compteurs, par nom
+     * @param latencies les histogrammes de latence, par opération
+     */
+    public record Snapshot(Map<String, Long> counters, Map<String, LatencyHistogram.Snapshot> latencies) {
+        private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+        public Snapshot {
+            counters = Map.copyOf(counters);
+            latencies = Map.copyOf(latencies);
+        }
+
+        /**
+         * Rend l'instantané au format texte d'exposition de Prometheus : un compteur agency_&lt;nom&gt;_total
+         * par compteur, un résumé agency_&lt;opération&gt;_latency_seconds (quantiles, somme, nombre) par histogramme
+         * @return le texte d'exposition
+         */
+        public String toText() {
+            StringBuilder text = new StringBuilder(1024);
+            counters.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(counter -> {
+                String name = "agency_" + counter.getKey() + "_total";
+                text.append("# TYPE ").append(name).append(" counter\n")
+                        .append(name).append(' ').append(counter.getValue()).append('\n');
+            });
+            latencies.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(latency -> {
+                String name = "agency_" + latency.getKey() + "_latency_seconds";
+                LatencyHistogram.Snapshot histogram = latency.getValue();
+                text.append("# TYPE ").append(name).append(" summary\n");
+                for (double quantile : QUANTILES) {
+                    text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                            .append(seconds(histogram.valueAtPercentile(quantile * 100))).append('\n');
+                }
+                text.append(name).append("_sum ").append(seconds(histogram.totalNanos())).append('\n')
+                        .append(name).append("_count ").append(histogram.count()).append('\n');
+            });
+            return text.toString();
+        }
+
+        private static String seconds(long nanos) {
+            return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package agency;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Partition de flotte gérée par un {@link AgencyCluster}.
+ * <p>
+ * L'interface reprend les opérations de {@link RentalAgency} dont le cluster a besoin, avec les mêmes contrats
+ * et les mêmes exceptions ; {@link #local(RentalAgency)} en fournit l'implémentation en mémoire, et une
+ * implémentation distante peut la remplacer sans changer le cluster. Les méthodes peuvent être appelées
+ * depuis plusieurs threads.
+ */
+public interface AgencyShard {
+    /**
+     * Retourne une partition portée par une agence du même processus
+     * @param agency l'agence
+     * @return la partition
+     */
+    static AgencyShard local(RentalAgency agency) {
+        return new LocalAgencyShard(agency);
+    }
+
+    /**
+     * Ajoute un véhicule à la partition si il n'est pas déjà présent
+     * @param vehicle le véhicule
+     * @return true si le véhicule a été ajouté, false sinon
+     */
+    boolean add(AbstractVehicle vehicle);
+
+    /**
+     * Supprime un véhicule de la partition
+     * @param vehicle le véhicule
+     * @throws UnknownVehicleException si le véhicule n'est pas présent dans la partition
+     */
+    void remove(AbstractVehicle vehicle);
+
+    /**
+     * Retourne true si le véhicule est présent dans la partition
+     * @param vehicle le véhicule
+     * @return true si le véhicule est présent, false sinon
+     */
+    boolean contains(AbstractVehicle vehicle);
+
+    /**
+     * Retourne les véhicules de la partition qui satisfont le critère, dans leur ordre d'ajout
+     * @param criterion le critère
+     * @return les véhicules sélectionnés
+     */
+    List<AbstractVehicle> select(Predicate<AbstractVehicle> criterion);
+
+    /**
+     * Loue un véhicule de la partition à un client
+     * @param client le client
+     * @param vehicle le véhicule
+     * @return le prix journalier de location
+     * @throws UnknownVehicleException si le véhicule n'est pas présent dans la partition
+     * @throws IllegalStateException si le véhicule est déjà loué ou si le client loue déjà un véhicule
+     */
+    double rentVehicle(Client client, AbstractVehicle vehicle);
+
+    /**
+     * Rend le véhicule loué par un client dans la partition
+     * @param client le client
+     * @throws IllegalStateException si le client ne loue aucun véhicule dans la partition
+     */
+    void returnVehicle(Client client);
+
+    /**
+     * Retourne true si le véhicule est loué
+     * @param vehicle le véhicule
+     * @return true si le véhicule est loué, false sinon
+     */
+    boolean vehicleIsRented(AbstractVehicle vehicle);
+
+    /**
+     * Retourne les agrégats de toute la partition
+     * @return les agrégats
+     */
+    AgencyStatistics.Summary total();
+
+    /**
+     * Retourne les agrégats de la partition par marque
+     * @return les agrégats, par marque
+     */
+    Map<String, AgencyStatistics.Summary> byBrand();
+
+    /**
+     * Retourne les agrégats de la partition par type de véhicule
+     * @return les agrégats, par type
+     */
+    Map<Class<?>, AgencyStatistics.Summary> byType();
+}
@@ -0,0 +1,204 @@
+package agency;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrégats courants d'une agence : taille de la flotte, nombre de véhicules loués et chiffre d'affaires
+ * journalier des locations en cours, au total, par marque et par type de véhicule.
+ * <p>
+ * L'agence les met à jour en temps constant à chaque ajout, retrait, location et retour ; leur lecture
+ * ne parcourt pas les locations. Les compteurs sont des {@link LongAdder} et {@link DoubleAdder} : la lecture
+ * est sûre sous accès concurrents, chaque valeur est exacte au repos mais deux valeurs lues pendant des
+ * modifications peuvent ne pas correspondre au même instant.
+ * <p>
+ * Le chiffre d'affaires d'une location est son prix journalier au moment de la location ; les véhicules
+ * sans marque sont comptés sous la marque "".
+ */
+public final class AgencyStatistics {
+    private final Usage total = new Usage();
+    private final Map<String, Usage> byBrand = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Usage> byType = new ConcurrentHashMap<>();
+
+    AgencyStatistics() {
+    }
+
+    /**
+     * Agrégats d'un ensemble de véhicules, à un instant donné
+     * @param vehicles le nombre de véhicules de la flotte
+     * @param rented le nombre de véhicules loués
+     * @param dailyRevenue le chiffre d'affaires journalier des locations en cours
+     */
+    public record Summary(long vehicles, long rented, double dailyRevenue) {
+        /**
+         * Retourne le taux d'utilisation : part des véhicules de la flotte actuellement loués
+         * @return le taux d'utilisation, entre 0 et 1 (0 pour une flotte vide)
+         */
+        public double utilisation() {
+            return vehicles == 0 ? 0 : (double) rented / vehicles;
+        }
+
+        /**
+         * Retourne les agrégats cumulés de deux ensembles de véhicules disjoints
+         * @param other les agrégats de l'autre ensemble
+         * @return les agrégats cumulés
+         */
+        public Summary plus(Summary other) {
+            return new Summary(vehicles + other.vehicles, rented + other.rented, dailyRevenue + other.dailyRevenue);
+        }
+    }
+
+    /**
+     * Retourne le nombre de véhicules de la flotte
+     * @return le nombre de véhicules
+     */
+    public long fleetSize() {
+        return total.vehicles.sum();
+    }
+
+    /**
+     * Retourne le nombre de véhicules loués
+     * @return le nombre de véhicules loués
+     */
+    public long rentedCount() {
+        return total.rented.sum();
+    }
+
+    /**
+     * Retourne le chiffre d'affaires journalier des locations en cours
+     * @return la somme des prix journaliers des véhicules loués
+     */
+    public double dailyRevenue() {
+        return total.revenue.sum();
+    }
+
+    /**
+     * Retourne les agrégats de toute l'agence
+     * @return les agrégats
+     */
+    public Summary total() {
+        return total.summary();
+    }
+
+    /**
+     * Retourne les agrégats d'une marque
+     * @param brand la marque
+     * @return les agrégats de la marque (nuls si elle est inconnue)
+     */
+    public Summary brand(String brand) {
+        Usage usage = byBrand.get(brandKey(brand));
+        return usage == null ? new Summary(0, 0, 0) : usage.summary();
+    }
+
+    /**
+     * Retourne les agrégats d'un type de véhicule (les sous-types ne sont pas inclus)
+     * @param type le type de véhicule
+     * @return les agrégats du type (nuls s'il est inconnu)
+     */
+    public Summary type(Class<? extends AbstractVehicle> type) {
+        Usage usage = byType.get(type);
+        return usage == null ? new Summary(0, 0, 0) : usage.summary();
+    }
+
+    /**
+     * Retourne une copie des agrégats par marque
+     * @return les agrégats, par marque
+     */
+    public Map<String, Summary> byBrand() {
+        return summaries(byBrand);
+    }
+
+    /**
+     * Retourne une copie des agrégats par type de véhicule
+     * @return les agrégats, par type
+     */
+    public Map<Class<?>, Summary> byType() {
+        return summaries(byType);
+    }
+
+    private static <K> Map<K, Summary> summaries(Map<K, Usage> usages) {
+        Map<K, Summary> summaries = new HashMap<>();
+        usages.forEach((key, usage) -> summaries.put(key, usage.summary()));
+        return summaries;
+    }
+
+    void vehicleAdded(AbstractVehicle vehicle) {
+        total.vehicles.increment();
+        brandUsage(vehicle).vehicles.increment();
+        typeUsage(vehicle).vehicles.increment();
+    }
+
+    /**
+     * Compte un chargement massif de véhicules : les véhicules sont d'abord décomptés localement,
+     * puis chaque compteur partagé n'est incrémenté qu'une fois
+     */
+    void vehiclesAdded(Collection<? extends AbstractVehicle> vehicles) {
+        Map<String, long[]> brands = new HashMap<>();
+        Map<Class<?>, long[]> types = new HashMap<>();
+        for (AbstractVehicle vehicle : vehicles) {
+            brands.computeIfAbsent(brandKey(vehicle.getBrand()), k -> new long[1])[0]++;
+            types.computeIfAbsent(vehicle.getClass(), k -> new long[1])[0]++;
+        }
+        total.vehicles.add(vehicles.size());
+        brands.forEach((brand, count) -> byBrand.computeIfAbsent(brand, k -> new Usage()).vehicles.add(count[0]));
+        types.forEach((type, count) -> byType.computeIfAbsent(type, k -> new Usage()).vehicles.add(count[0]));
+    }
+
+    void vehicleRemoved(AbstractVehicle vehicle) {
+        total.vehicles.decrement();
+        brandUsage(vehicle).vehicles.decrement();
+        typeUsage(vehicle).vehicles.decrement();
+    }
+
+    void vehicleRented(AbstractVehicle vehicle, double price) {
+        total.rent(price);
+        brandUsage(vehicle).rent(price);
+        typeUsage(vehicle).rent(price);
+    }
+
+    void vehicleReturned(AbstractVehicle vehicle, double price) {
+        total.release(price);
+        brandUsage(vehicle).release(price);
+        typeUsage(vehicle).release(price);
+    }
+
+    private Usage brandUsage(AbstractVehicle vehicle) {
+        String key = brandKey(vehicle.getBrand());
+        Usage usage = byBrand.get(key);
+        return usage != null ? usage : byBrand.computeIfAbsent(key, k -> new Usage());
+    }
+
+    private Usage typeUsage(AbstractVehicle vehicle) {
+        Class<?> key = vehicle.getClass();
+        Usage usage = byType.get(key);
+        return usage != null ? usage : byType.computeIfAbsent(key, k -> new Usage());
+    }
+
+    private static String brandKey(String brand) {
+        return brand == null ? "" : brand;
+    }
+
+    private static final class Usage {
+        final LongAdder vehicles = new LongAdder();
+        final LongAdder rented = new LongAdder();
+        final DoubleAdder revenue = new DoubleAdder();
+
+        void rent(double price) {
+            rented.increment();
+            revenue.add(price);
+        }
+
+        void release(double price) {
+            rented.decrement();
+            revenue.add(-price);
+        }
+
+        Summary summary() {
+            return new Summary(vehicles.sum(), rented.sum(), revenue.sum());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package agency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class AndCriterion implements Criterion {
+    private final List<Predicate<? super AbstractVehicle>> terms;
+
+    public AndCriterion(List<? extends Predicate<? super AbstractVehicle>> terms) {
+        this.terms = List.copyOf(terms);
+    }
+
+    /**
+     * Construit la conjonction de deux critères en aplatissant les conjonctions imbriquées
+     * @param left le premier critère
+     * @param right le second critère
+     * @return la conjonction des deux critères
+     */
+    static AndCriterion of(Predicate<? super AbstractVehicle> left, Predicate<? super AbstractVehicle> right) {
+        List<Predicate<? super AbstractVehicle>> terms = new ArrayList<>();
+        for (Predicate<? super AbstractVehicle> term : List.<Predicate<? super AbstractVehicle>>of(left, right)) {
+            if (term instanceof AndCriterion and) {
+                terms.addAll(and.terms);
+            } else {
+                terms.add(term);
+            }
+        }
+        return new AndCriterion(terms);
+    }
+
+    /**
+     * Retourne les termes de la conjonction dans leur ordre d'évaluation
+     * @return les termes de la conjonction
+     */
+    public List<Predicate<? super AbstractVehicle>> getTerms() {
+        return terms;
+    }
+
+    @Override
+    public boolean test(AbstractVehicle abstractVehicle) {
+        for (Predicate<? super AbstractVehicle> term : terms) {
+            if (!term.test(abstractVehicle)) return false;
+        }
+        return true;
+    }
+}
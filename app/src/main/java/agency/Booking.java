@@ -0,0 +1,32 @@
+package agency;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Réservation datée d'un véhicule par un client, du premier au dernier jour inclus
+ * @param client le client
+ * @param vehicle le véhicule
+ * @param start le premier jour de location
+ * @param end le dernier jour de location
+ */
+public record Booking(Client client, AbstractVehicle vehicle, LocalDate start, LocalDate end) {
+    /**
+     * @throws IllegalArgumentException si la réservation se termine avant de commencer
+     */
+    public Booking {
+        Objects.requireNonNull(client);
+        Objects.requireNonNull(vehicle);
+        if (end.isBefore(start)) throw new IllegalArgumentException("Booking ends before it starts: " + start + " > " + end);
+    }
+
+    /**
+     * Retourne true si la réservation occupe au moins un jour de la période
+     * @param from le premier jour de la période
+     * @param to le dernier jour de la période
+     * @return true si la réservation chevauche la période
+     */
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        return !start.isAfter(to) && !end.isBefore(from);
+    }
+}
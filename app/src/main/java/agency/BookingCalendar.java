@@ -0,0 +1,276 @@
+package agency;
+
+import util.TimeProvider;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Calendrier des réservations datées de la flotte : pour chaque véhicule, un planning immuable de ses
+ * réservations sans chevauchement, triées par premier jour (jours depuis l'époque, en tableaux primitifs).
+ * Les réservations d'un véhicule ne se chevauchant pas, leurs derniers jours sont triés dans le même ordre :
+ * seule la réservation qui commence au plus tard le dernier jour d'une période peut la chevaucher, et la
+ * disponibilité s'obtient par une recherche dichotomique, sans verrou.
+ * <p>
+ * Une réservation ou une annulation remplace le planning du véhicule par une copie modifiée, de façon
+ * atomique ; des réservations de véhicules différents ne se bloquent pas. Les locations sans dates, leurs
+ * retours et les retraits de véhicules passent par le même verrou par véhicule ({@link #claim}, {@link #locked}
+ * et {@link #remove}), pour qu'une location et une réservation couvrant aujourd'hui ne puissent pas réussir
+ * toutes les deux, et pour que l'agence notifie chaque modification d'un véhicule dans l'ordre où elle l'applique.
+ * Le jour courant est lu sur {@link TimeProvider}.
+ */
+class BookingCalendar {
+    private final Map<AbstractVehicle, Schedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * Enregistre la réservation si aucune autre ne la chevauche
+     * @param booking la réservation
+     * @param committed appelé sous le verrou du véhicule, une fois la réservation acceptée ;
+     *                  s'il lève une exception, la réservation n'est pas enregistrée
+     * @return true si la réservation a été enregistrée, false si elle en chevauche une autre
+     */
+    boolean book(Booking booking, Consumer<Booking> committed) {
+        boolean[] booked = new boolean[1];
+        schedules.compute(booking.vehicle(), (vehicle, schedule) -> {
+            Schedule current = schedule == null ? Schedule.EMPTY : schedule;
+            if (current.overlapping(booking.start().toEpochDay(), booking.end().toEpochDay()) >= 0) return schedule;
+            Schedule updated = current.with(booking);
+            committed.accept(booking);
+            booked[0] = true;
+            return updated;
+        });
+        return booked[0];
+    }
+
+    /**
+     * Annule la réservation du client commençant ce jour-là
+     * @param client le client
+     * @param vehicle le véhicule
+     * @param start le premier jour de la réservation
+     * @param cancelled appelé sous le verrou du véhicule, une fois la réservation trouvée ;
+     *                  s'il lève une exception, la réservation n'est pas annulée
+     * @return true si la réservation a été annulée, false si elle n'existe pas
+     */
+    boolean cancel(Client client, AbstractVehicle vehicle, LocalDate start, Consumer<Booking> cancelled) {
+        boolean[] removed = new boolean[1];
+        schedules.computeIfPresent(vehicle, (v, schedule) -> {
+            int position = schedule.startingOn(start.toEpochDay());
+            if (position < 0 || !schedule.bookings[position].client().equals(client)) return schedule;
+            Schedule updated = schedule.without(position);
+            cancelled.accept(schedule.bookings[position]);
+            removed[0] = true;
+            return updated.isEmpty() ? null : updated;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Retourne true si aucune réservation du véhicule ne chevauche la période (en temps logarithmique)
+     * @param vehicle le véhicule
+     * @param from le premier jour de la période
+     * @param to le dernier jour de la période
+     * @return true si le véhicule est libre sur la période
+     */
+    boolean isFree(AbstractVehicle vehicle, LocalDate from, LocalDate to) {
+        return isFree(vehicle, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Variante de {@link #isFree(AbstractVehicle, LocalDate, LocalDate)} en jours depuis l'époque
+     */
+    boolean isFree(AbstractVehicle vehicle, long from, long to) {
+        Schedule schedule = schedules.get(vehicle);
+        return schedule == null || schedule.overlapping(from, to) < 0;
+    }
+
+    /**
+     * Réservation d'une location sans dates, exécutée sous le verrou du véhicule dans le calendrier
+     */
+    @FunctionalInterface
+    interface Claim {
+        /**
+         * @param bookedToday true si une réservation du véhicule couvre aujourd'hui
+         * @return le résultat de la location
+         */
+        RentalResult claim(boolean bookedToday);
+    }
+
+    /**
+     * Exécute la réservation d'une location sans dates sous le verrou du véhicule : aucune réservation datée
+     * ni aucun retrait du véhicule ne peut s'intercaler. La date n'est lue que si le véhicule a un planning,
+     * pour que les locations sans réservation n'en paient pas le coût.
+     * @param vehicle le véhicule
+     * @param claim la réservation
+     * @return le résultat de la réservation
+     */
+    RentalResult claim(AbstractVehicle vehicle, Claim claim) {
+        RentalResult[] result = new RentalResult[1];
+        schedules.compute(vehicle, (v, schedule) -> {
+            boolean bookedToday = false;
+            if (schedule != null) {
+                long today = TimeProvider.currentEpochDay();
+                bookedToday = schedule.overlapping(today, today) >= 0;
+            }
+            result[0] = claim.claim(bookedToday);
+            return schedule;
+        });
+        return result[0];
+    }
+
+    /**
+     * Exécute une action sous le verrou du véhicule : aucune réservation, location, retour ni retrait
+     * du véhicule ne peut s'intercaler
+     * @param vehicle le véhicule
+     * @param action l'action ; si elle lève une exception, le planning du véhicule est inchangé
+     * @return le résultat de l'action
+     */
+    <T> T locked(AbstractVehicle vehicle, Supplier<T> action) {
+        List<T> result = new ArrayList<>(1);
+        schedules.compute(vehicle, (v, schedule) -> {
+            result.add(action.get());
+            return schedule;
+        });
+        return result.get(0);
+    }
+
+    /**
+     * Retourne les réservations du véhicule, triées par premier jour
+     * @param vehicle le véhicule
+     * @return les réservations du véhicule
+     */
+    List<Booking> bookings(AbstractVehicle vehicle) {
+        Schedule schedule = schedules.get(vehicle);
+        return schedule == null ? List.of() : List.of(schedule.bookings);
+    }
+
+    /**
+     * Retourne une copie de toutes les réservations
+     * @return les réservations, par véhicule
+     */
+    List<Booking> all() {
+        List<Booking> all = new ArrayList<>();
+        for (Schedule schedule : schedules.values()) {
+            Collections.addAll(all, schedule.bookings);
+        }
+        return all;
+    }
+
+    /**
+     * Oublie les réservations d'un véhicule retiré de la flotte, sous le verrou du véhicule : une réservation
+     * ou une location qui le vérifie ensuite voit le retrait
+     * @param vehicle le véhicule
+     * @param removed appelé sous le verrou du véhicule ; s'il lève une exception, les réservations sont gardées
+     */
+    void remove(AbstractVehicle vehicle, Runnable removed) {
+        schedules.compute(vehicle, (v, schedule) -> {
+            removed.run();
+            return null;
+        });
+    }
+
+    /**
+     * Rejoue une réservation lue dans un journal ou un instantané : elle remplace les réservations
+     * qu'elle chevauche, pour que le rejeu soit idempotent
+     * @param booking la réservation
+     */
+    void replayBook(Booking booking) {
+        long start = booking.start().toEpochDay();
+        long end = booking.end().toEpochDay();
+        schedules.compute(booking.vehicle(), (vehicle, schedule) -> {
+            Schedule current = schedule == null ? Schedule.EMPTY : schedule;
+            int position;
+            while ((position = current.overlapping(start, end)) >= 0) {
+                current = current.without(position);
+            }
+            return current.with(booking);
+        });
+    }
+
+    /**
+     * Rejoue une annulation lue dans un journal : sans effet si la réservation n'existe plus
+     * @param booking la réservation
+     */
+    void replayCancel(Booking booking) {
+        schedules.computeIfPresent(booking.vehicle(), (vehicle, schedule) -> {
+            int position = schedule.startingOn(booking.start().toEpochDay());
+            if (position < 0 || !schedule.bookings[position].equals(booking)) return schedule;
+            Schedule updated = schedule.without(position);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * Planning immuable d'un véhicule : réservations triées par premier jour, bornes en jours depuis l'époque
+     */
+    private static final class Schedule {
+        static final Schedule EMPTY = new Schedule(new long[0], new long[0], new Booking[0]);
+
+        final long[] starts;
+        final long[] ends;
+        final Booking[] bookings;
+
+        Schedule(long[] starts, long[] ends, Booking[] bookings) {
+            this.starts = starts;
+            this.ends = ends;
+            this.bookings = bookings;
+        }
+
+        boolean isEmpty() {
+            return bookings.length == 0;
+        }
+
+        /**
+         * Retourne la position de la réservation qui chevauche la période, ou -1
+         */
+        int overlapping(long from, long to) {
+            // dernière réservation commençant au plus tard le dernier jour de la période
+            int insertion = Arrays.binarySearch(starts, to);
+            int latest = insertion >= 0 ? insertion : -insertion - 2;
+            return latest >= 0 && ends[latest] >= from ? latest : -1;
+        }
+
+        /**
+         * Retourne la position de la réservation commençant ce jour-là, ou -1
+         */
+        int startingOn(long day) {
+            int position = Arrays.binarySearch(starts, day);
+            return position >= 0 ? position : -1;
+        }
+
+        Schedule with(Booking booking) {
+            long start = booking.start().toEpochDay();
+            int position = -Arrays.binarySearch(starts, start) - 1;
+            int size = bookings.length;
+            long[] newStarts = new long[size + 1];
+            long[] newEnds = new long[size + 1];
+            Booking[] newBookings = new Booking[size + 1];
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(ends, 0, newEnds, 0, position);
+            System.arraycopy(bookings, 0, newBookings, 0, position);
+            newStarts[position] = start;
+            newEnds[position] = booking.end().toEpochDay();
+            newBookings[position] = booking;
+            System.arraycopy(starts, position, newStarts, position + 1, size - position);
+            System.arraycopy(ends, position, newEnds, position + 1, size - position);
+            System.arraycopy(bookings, position, newBookings, position + 1, size - position);
+            return new Schedule(newStarts, newEnds, newBookings);
+        }
+
+        Schedule without(int position) {
+            int size = bookings.length;
+            long[] newStarts = new long[size - 1];
+            long[] newEnds = new long[size - 1];
+            Booking[] newBookings = new Booking[size - 1];
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(ends, 0, newEnds, 0, position);
+            System.arraycopy(bookings, 0, newBookings, 0, position);
+            System.arraycopy(starts, position + 1, newStarts, position, size - position - 1);
+            System.arraycopy(ends, position + 1, newEnds, position, size - position - 1);
+            System.arraycopy(bookings, position + 1, newBookings, position, size - position - 1);
+            return new Schedule(newStarts, newEnds, newBookings);
+        }
+    }
+}
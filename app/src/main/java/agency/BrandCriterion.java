@@ -1,14 +1,16 @@
 package agency;
 
-import java.util.function.Predicate;
-
-public class BrandCriterion implements Predicate<AbstractVehicle> {
+public class BrandCriterion implements Criterion {
     private String brand;
 
     public BrandCriterion(String brand) {
         this.brand = brand;
     }
 
+    public String getBrand() {
+        return brand;
+    }
+
     @Override
     public boolean test(AbstractVehicle abstractVehicle) {
         return brand.equals(abstractVehicle.getBrand());
@@ -3,7 +3,15 @@ package agency;
 import util.TimeProvider;
 
 public class Car extends AbstractVehicle {
+    private static final int NEW_CAR_SEAT_PRICE = 40;
+    private static final int USED_CAR_SEAT_PRICE = 20;
+    private static final int NEW_CAR_MAX_AGE = 5;
+
     private int numberOfSeats;
+    // prix mémorisés à la construction : seul le passage du seuil des 5 ans les fait changer
+    private final double newCarPrice;
+    private final double usedCarPrice;
+    private final int lastNewYear;
 
     public Car(String brand, String model, int productionYear, int numberOfSeats) {
         super(brand, model, productionYear);
@@ -12,6 +20,17 @@ public class Car extends AbstractVehicle {
         }
 
         this.numberOfSeats = numberOfSeats;
+        this.newCarPrice = NEW_CAR_SEAT_PRICE * numberOfSeats;
+        this.usedCarPrice = USED_CAR_SEAT_PRICE * numberOfSeats;
+        this.lastNewYear = productionYear + NEW_CAR_MAX_AGE;
+    }
+
+    /**
+     * renvoie le nombre de places de la voiture
+     * @return le nombre de places
+     */
+    public int getNumberOfSeats() {
+        return numberOfSeats;
     }
 
     /**
@@ -19,7 +38,12 @@ public class Car extends AbstractVehicle {
      * @return une chaîne de caractères avec les détails du véhicule
      */
     public String getDetails() {
-        return numberOfSeats == 1 ? "(1 seat)" : "(" + numberOfSeats + " seats)";
+        return appendDetails(new StringBuilder(12)).toString();
+    }
+
+    @Override
+    protected StringBuilder appendDetails(StringBuilder builder) {
+        return numberOfSeats == 1 ? builder.append("(1 seat)") : builder.append('(').append(numberOfSeats).append(" seats)");
     }
 
     /**
@@ -27,16 +51,36 @@ public class Car extends AbstractVehicle {
      * @return si un véhicule à moins de 5 ans
      */
     public boolean isNew() {
-        return TimeProvider.currentYearValue() - getProductionYear() <= 5;
+        return TimeProvider.currentYearValue() <= lastNewYear;
     }
 
+    /**
+     * renvoie le prix journalier mémorisé ; il bascule automatiquement du prix neuf au prix d'occasion
+     * quand l'année courante dépasse le seuil des 5 ans
+     * @return le prix journalier de location
+     */
     @Override
     public double dailyRentalPrice() {
-        return isNew() ? 40 * numberOfSeats : 20 * numberOfSeats;
+        return isNew() ? newCarPrice : usedCarPrice;
+    }
+
+    static boolean isNew(int productionYear, int currentYear) {
+        return currentYear - productionYear <= NEW_CAR_MAX_AGE;
+    }
+
+    /**
+     * calcule le prix journalier d'une voiture à partir de ses caractéristiques, sans instance
+     * @param productionYear l'année de production
+     * @param numberOfSeats le nombre de places
+     * @param currentYear l'année courante
+     * @return le prix journalier de location
+     */
+    static double priceFor(int productionYear, int numberOfSeats, int currentYear) {
+        return isNew(productionYear, currentYear) ? NEW_CAR_SEAT_PRICE * numberOfSeats : USED_CAR_SEAT_PRICE * numberOfSeats;
     }
 
     @Override
-    public String toString() {
-        return "Car " + super.toString();
+    public StringBuilder appendTo(StringBuilder builder) {
+        return super.appendTo(builder.append("Car "));
     }
 }
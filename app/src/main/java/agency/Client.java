@@ -1,9 +1,14 @@
 package agency;
 
+import java.util.Objects;
+
+/**
+ * Client de l'agence, identifié par ses nom, prénom et année de naissance
+ */
 public class Client {
-    private String name;
-    private String surname;
-    private int birthYear;
+    private final String name;
+    private final String surname;
+    private final int birthYear;
 
     public Client(String name, String surname, int birthYear) {
         this.name = name;
@@ -22,4 +27,22 @@ public class Client {
     public int getBirthYear() {
         return birthYear;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Client client)) return false;
+        return birthYear == client.birthYear && Objects.equals(name, client.name)
+                && Objects.equals(surname, client.surname);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, surname, birthYear);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + surname + " (" + birthYear + ")";
+    }
 }
@@ -0,0 +1,59 @@
+package agency;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registre des clients d'une agence, utilisable par plusieurs threads.
+ * <p>
+ * Chaque client (identifié par ses nom, prénom et année de naissance) reçoit à son premier enregistrement
+ * un identifiant stable et dense (0, 1, 2...) ; le client d'un identifiant est retrouvé en temps constant.
+ */
+public class ClientRegistry {
+    private final Map<Client, Integer> ids = new ConcurrentHashMap<>();
+    private final DenseIdMap<Client> clients = new DenseIdMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Enregistre le client s'il ne l'est pas déjà
+     * @param client le client
+     * @return l'identifiant du client
+     */
+    public int register(Client client) {
+        Integer id = ids.get(client);
+        if (id != null) return id;
+        return ids.computeIfAbsent(client, registered -> {
+            int allocated = nextId.getAndIncrement();
+            clients.put(allocated, registered);
+            return allocated;
+        });
+    }
+
+    /**
+     * Retourne l'identifiant du client, ou -1 s'il n'est pas enregistré
+     * @param client le client
+     * @return l'identifiant du client, ou -1
+     */
+    public int idOf(Client client) {
+        Integer id = ids.get(client);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retourne le client enregistré sous cet identifiant (en temps constant)
+     * @param id l'identifiant
+     * @return le client, ou null si l'identifiant est inconnu
+     */
+    public Client client(int id) {
+        return id < 0 ? null : clients.get(id);
+    }
+
+    /**
+     * Retourne le nombre de clients enregistrés
+     * @return le nombre de clients
+     */
+    public int size() {
+        return ids.size();
+    }
+}
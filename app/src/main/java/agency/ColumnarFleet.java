@@ -0,0 +1,239 @@
+package agency;
+
+import util.TimeProvider;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Représentation colonne, immuable, d'une flotte de {@link Car} et de {@link Motorbike}.
+ * <p>
+ * Chaque véhicule est une ligne répartie sur des tableaux primitifs : année de production, identifiants
+ * de marque et de modèle (dictionnaires de chaînes partagées), type et caractéristique (places ou cylindrée).
+ * Les critères de marque, de type et de prix maximal et leurs combinaisons sont évalués directement sur
+ * ces tableaux, sans lire les véhicules ; une dernière colonne garde les véhicules d'origine, que
+ * {@link #vehicle(int)} et {@link #select(Predicate)} retournent tels quels.
+ * <p>
+ * C'est une copie détachée, destinée aux parcours et aux calculs en lot (sélections massives, tarification) :
+ * elle n'est pas la représentation de l'agence, ne voit ni les ajouts et retraits ultérieurs ni les locations,
+ * et n'est pas mise à jour. Un véhicule qu'elle retourne a donc pu être retiré de l'agence depuis.
+ */
+public class ColumnarFleet {
+    static final byte CAR = 0;
+    static final byte MOTORBIKE = 1;
+
+    private final int size;
+    private final int[] years;
+    private final int[] brandIds;
+    private final int[] modelIds;
+    private final byte[] types;
+    private final int[] specs;
+    private final AbstractVehicle[] vehicles;
+    private final String[] brands;
+    private final String[] models;
+    private final Map<String, Integer> brandIdsByName;
+
+    private ColumnarFleet(int size, int[] years, int[] brandIds, int[] modelIds, byte[] types, int[] specs,
+                          AbstractVehicle[] vehicles, List<String> brands, List<String> models,
+                          Map<String, Integer> brandIdsByName) {
+        this.size = size;
+        this.years = years;
+        this.brandIds = brandIds;
+        this.modelIds = modelIds;
+        this.types = types;
+        this.specs = specs;
+        this.vehicles = vehicles;
+        this.brands = brands.toArray(new String[0]);
+        this.models = models.toArray(new String[0]);
+        this.brandIdsByName = brandIdsByName;
+    }
+
+    /**
+     * Construit la représentation colonne des véhicules, dans l'ordre de la collection
+     * @param vehicles les véhicules
+     * @return la flotte en colonnes
+     * @throws IllegalArgumentException si un véhicule n'est ni une voiture ni une moto
+     */
+    public static ColumnarFleet of(Collection<? extends AbstractVehicle> vehicles) {
+        int size = vehicles.size();
+        int[] years = new int[size];
+        int[] brandIds = new int[size];
+        int[] modelIds = new int[size];
+        byte[] types = new byte[size];
+        int[] specs = new int[size];
+        AbstractVehicle[] stored = new AbstractVehicle[size];
+        List<String> brands = new ArrayList<>();
+        List<String> models = new ArrayList<>();
+        Map<String, Integer> brandIdsByName = new HashMap<>();
+        Map<String, Integer> modelIdsByName = new HashMap<>();
+        int row = 0;
+        for (AbstractVehicle vehicle : vehicles) {
+            if (vehicle instanceof Car car) {
+                types[row] = CAR;
+                specs[row] = car.getNumberOfSeats();
+            } else if (vehicle instanceof Motorbike motorbike) {
+                types[row] = MOTORBIKE;
+                specs[row] = motorbike.getCylinderCapacity();
+            } else {
+                throw new IllegalArgumentException("Unsupported vehicle type: " + vehicle.getClass().getName());
+            }
+            years[row] = vehicle.getProductionYear();
+            brandIds[row] = intern(vehicle.getBrand(), brands, brandIdsByName);
+            modelIds[row] = intern(vehicle.getModel(), models, modelIdsByName);
+            stored[row] = vehicle;
+            row++;
+        }
+        return new ColumnarFleet(size, years, brandIds, modelIds, types, specs, stored, brands, models,
+                brandIdsByName);
+    }
+
+    private static int intern(String value, List<String> dictionary, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Retourne le nombre de véhicules
+     * @return le nombre de véhicules
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retourne le véhicule de la ligne donnée, celui de la collection d'origine
+     * @param row la ligne
+     * @return le véhicule
+     */
+    public AbstractVehicle vehicle(int row) {
+        Objects.checkIndex(row, size);
+        return vehicles[row];
+    }
+
+    /**
+     * Retourne le prix journalier de la ligne donnée, calculé sur les colonnes
+     * @param row la ligne
+     * @return le prix journalier de location
+     */
+    public double dailyRentalPrice(int row) {
+        return price(row, TimeProvider.currentYearValue());
+    }
+
+    private double price(int row, int currentYear) {
+        return types[row] == CAR
+                ? Car.priceFor(years[row], specs[row], currentYear)
+                : Motorbike.priceFor(specs[row]);
+    }
+
+    /**
+     * Calcule les prix journaliers de base (formules des voitures et des motos) de toutes les lignes
+     * @param prices le tableau recevant les prix, au moins aussi long que la flotte
+     */
+    void basePrices(double[] prices) {
+        int currentYear = TimeProvider.currentYearValue();
+        for (int row = 0; row < size; row++) {
+            prices[row] = price(row, currentYear);
+        }
+    }
+
+    boolean isCar(int row) {
+        return types[row] == CAR;
+    }
+
+    int brandId(int row) {
+        return brandIds[row];
+    }
+
+    int brandCount() {
+        return brands.length;
+    }
+
+    String brand(int brandId) {
+        return brands[brandId];
+    }
+
+    /**
+     * Retourne les lignes des véhicules qui satisfont le critère, dans l'ordre.
+     * Les critères de marque, de type, de prix maximal et leurs combinaisons sont évalués sur les colonnes ;
+     * les autres prédicats sont évalués sur le véhicule de chaque ligne examinée.
+     * @param criterion le critère
+     * @return les lignes sélectionnées
+     */
+    public int[] rows(Predicate<? super AbstractVehicle> criterion) {
+        int currentYear = TimeProvider.currentYearValue();
+        int[] rows = new int[Math.min(size, 16)];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(criterion, row, currentYear)) {
+                if (count == rows.length) rows = Arrays.copyOf(rows, Math.min(size, rows.length * 2));
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Retourne les véhicules d'origine qui satisfont le critère, dans l'ordre
+     * @param criterion le critère
+     * @return les véhicules sélectionnés
+     */
+    public List<AbstractVehicle> select(Predicate<? super AbstractVehicle> criterion) {
+        int[] rows = rows(criterion);
+        List<AbstractVehicle> selected = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            selected.add(vehicles[row]);
+        }
+        return selected;
+    }
+
+    private boolean matches(Predicate<? super AbstractVehicle> criterion, int row, int currentYear) {
+        if (criterion instanceof BrandCriterion brand) {
+            Integer id = brandIdsByName.get(brand.getBrand());
+            return id != null && brandIds[row] == id;
+        }
+        if (criterion instanceof MaxPriceCriterion price) {
+            return price(row, currentYear) <= price.getMaxPrice();
+        }
+        if (criterion instanceof VehicleTypeCriterion type) {
+            return type.getType().isAssignableFrom(types[row] == CAR ? Car.class : Motorbike.class);
+        }
+        if (criterion instanceof NotCriterion not) {
+            return !matches(not.getTerm(), row, currentYear);
+        }
+        if (criterion instanceof AndCriterion and) {
+            for (Predicate<? super AbstractVehicle> term : and.getTerms()) {
+                if (!matches(term, row, currentYear)) return false;
+            }
+            return true;
+        }
+        if (criterion instanceof OrCriterion or) {
+            for (Predicate<? super AbstractVehicle> term : or.getTerms()) {
+                if (matches(term, row, currentYear)) return true;
+            }
+            return false;
+        }
+        return criterion.test(vehicles[row]);
+    }
+
+    /**
+     * Estime l'occupation mémoire des colonnes et des dictionnaires, en octets, hors véhicules d'origine
+     * (partagés avec la collection dont la flotte est issue)
+     * @return l'occupation mémoire estimée
+     */
+    public long estimatedBytes() {
+        // quatre colonnes d'entiers, les types, et les références compressées vers les véhicules
+        long bytes = 4L * size * 4 + size + 4L * size;
+        for (String brand : brands) {
+            bytes += 40 + brand.length();
+        }
+        for (String model : models) {
+            bytes += 40 + model.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,39 @@
+package agency;
+
+import java.util.function.Predicate;
+
+/**
+ * Critère de sélection de véhicules.
+ * Contrairement aux combinaisons de {@link Predicate}, les combinaisons de critères restent
+ * inspectables par l'agence, qui peut ainsi répondre à partir de ses index.
+ */
+public interface Criterion extends Predicate<AbstractVehicle> {
+    /**
+     * Retourne le critère vrai si ce critère et l'autre sont vrais
+     * @param other l'autre critère
+     * @return la conjonction des deux critères
+     */
+    @Override
+    default Criterion and(Predicate<? super AbstractVehicle> other) {
+        return AndCriterion.of(this, other);
+    }
+
+    /**
+     * Retourne le critère vrai si ce critère ou l'autre est vrai
+     * @param other l'autre critère
+     * @return la disjonction des deux critères
+     */
+    @Override
+    default Criterion or(Predicate<? super AbstractVehicle> other) {
+        return OrCriterion.of(this, other);
+    }
+
+    /**
+     * Retourne le critère vrai si ce critère est faux
+     * @return la négation du critère
+     */
+    @Override
+    default Criterion negate() {
+        return new NotCriterion(this);
+    }
+}
@@ -0,0 +1,157 @@
+package agency;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Planificateur de critères.
+ * <p>
+ * Il réordonne les termes des conjonctions et disjonctions selon leur coût estimé et leur sélectivité
+ * (calculée à partir des {@link FleetStatistics}), puis choisit le terme le plus sélectif couvert par
+ * un index pour produire les candidats ; les autres termes sont évalués sur ces candidats.
+ */
+class CriterionPlanner {
+    /** coût relatif d'une comparaison de marque ou de type */
+    static final double CHEAP_COST = 1;
+    /** coût relatif d'un calcul de prix journalier (appel virtuel + lecture de l'horloge) */
+    static final double PRICE_COST = 4;
+    /** coût relatif supposé d'un prédicat inconnu */
+    static final double UNKNOWN_COST = 10;
+    /** sélectivité supposée d'un prédicat inconnu */
+    static final double UNKNOWN_SELECTIVITY = 0.5;
+
+    private final FleetStatistics statistics;
+
+    CriterionPlanner(FleetStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Plan d'exécution d'un critère
+     * @param indexTerm le terme résolu par un index, ou null pour parcourir toute la flotte
+     * @param residual le critère à évaluer sur les candidats, ou null si l'index suffit
+     */
+    record Plan(Predicate<? super AbstractVehicle> indexTerm, Predicate<? super AbstractVehicle> residual) {
+    }
+
+    /**
+     * Construit le plan d'exécution du critère
+     * @param criterion le critère
+     * @return le plan d'exécution
+     */
+    Plan plan(Predicate<? super AbstractVehicle> criterion) {
+        Predicate<? super AbstractVehicle> optimized = optimize(criterion);
+        if (optimized instanceof AndCriterion and) {
+            Predicate<? super AbstractVehicle> indexTerm = null;
+            long best = Long.MAX_VALUE;
+            for (Predicate<? super AbstractVehicle> term : and.getTerms()) {
+                long size = statistics.estimate(term);
+                if (size >= 0 && size < best) {
+                    indexTerm = term;
+                    best = size;
+                }
+            }
+            if (indexTerm == null) return new Plan(null, and);
+            List<Predicate<? super AbstractVehicle>> residual = new ArrayList<>(and.getTerms());
+            if (isExact(indexTerm)) residual.remove(indexTerm);
+            return new Plan(indexTerm, residual.isEmpty() ? null
+                    : residual.size() == 1 ? residual.get(0) : new AndCriterion(residual));
+        }
+        if (statistics.estimate(optimized) >= 0) {
+            return new Plan(optimized, isExact(optimized) ? null : optimized);
+        }
+        return new Plan(null, optimized);
+    }
+
+    /**
+     * Réécrit le critère : double négation supprimée, termes des conjonctions ordonnés par pouvoir
+     * d'élimination par unité de coût, termes des disjonctions par pouvoir d'acceptation par unité de coût
+     * @param criterion le critère
+     * @return le critère réécrit, équivalent
+     */
+    Predicate<? super AbstractVehicle> optimize(Predicate<? super AbstractVehicle> criterion) {
+        if (criterion instanceof NotCriterion not) {
+            if (not.getTerm() instanceof NotCriterion inner) return optimize(inner.getTerm());
+            return new NotCriterion(optimize(not.getTerm()));
+        }
+        if (criterion instanceof AndCriterion and) {
+            List<Predicate<? super AbstractVehicle>> terms = optimizeAll(and.getTerms());
+            terms.sort(Comparator.comparingDouble(term -> -(1 - selectivity(term)) / cost(term)));
+            return new AndCriterion(terms);
+        }
+        if (criterion instanceof OrCriterion or) {
+            List<Predicate<? super AbstractVehicle>> terms = optimizeAll(or.getTerms());
+            terms.sort(Comparator.comparingDouble(term -> -selectivity(term) / cost(term)));
+            return new OrCriterion(terms);
+        }
+        return criterion;
+    }
+
+    private List<Predicate<? super AbstractVehicle>> optimizeAll(List<Predicate<? super AbstractVehicle>> terms) {
+        List<Predicate<? super AbstractVehicle>> optimized = new ArrayList<>(terms.size());
+        for (Predicate<? super AbstractVehicle> term : terms) {
+            optimized.add(optimize(term));
+        }
+        return optimized;
+    }
+
+    /**
+     * Estime la proportion de la flotte qui satisfait le critère
+     * @param criterion le critère
+     * @return la sélectivité, entre 0 et 1
+     */
+    double selectivity(Predicate<? super AbstractVehicle> criterion) {
+        if (criterion instanceof NotCriterion not) {
+            return 1 - selectivity(not.getTerm());
+        }
+        if (criterion instanceof AndCriterion and) {
+            double selectivity = 1;
+            for (Predicate<? super AbstractVehicle> term : and.getTerms()) {
+                selectivity *= selectivity(term);
+            }
+            return selectivity;
+        }
+        if (criterion instanceof OrCriterion or) {
+            double rejected = 1;
+            for (Predicate<? super AbstractVehicle> term : or.getTerms()) {
+                rejected *= 1 - selectivity(term);
+            }
+            return 1 - rejected;
+        }
+        long size = statistics.estimate(criterion);
+        if (size < 0) return UNKNOWN_SELECTIVITY;
+        return statistics.size() == 0 ? 0 : (double) size / statistics.size();
+    }
+
+    /**
+     * Estime le coût relatif d'évaluation du critère sur un véhicule
+     * @param criterion le critère
+     * @return le coût relatif
+     */
+    double cost(Predicate<? super AbstractVehicle> criterion) {
+        if (criterion instanceof BrandCriterion || criterion instanceof VehicleTypeCriterion) return CHEAP_COST;
+        if (criterion instanceof MaxPriceCriterion) return PRICE_COST;
+        if (criterion instanceof NotCriterion not) return cost(not.getTerm());
+        if (criterion instanceof AndCriterion and) return sumOfCosts(and.getTerms());
+        if (criterion instanceof OrCriterion or) return sumOfCosts(or.getTerms());
+        return UNKNOWN_COST;
+    }
+
+    private double sumOfCosts(List<Predicate<? super AbstractVehicle>> terms) {
+        double cost = 0;
+        for (Predicate<? super AbstractVehicle> term : terms) {
+            cost += cost(term);
+        }
+        return cost;
+    }
+
+    /**
+     * Retourne true si les candidats fournis par l'index pour ce terme le satisfont tous.
+     * Les prix dépendant de l'horloge, un critère de prix est toujours revérifié.
+     */
+    private static boolean isExact(Predicate<? super AbstractVehicle> term) {
+        return term instanceof BrandCriterion || term instanceof VehicleTypeCriterion;
+    }
+}
@@ -0,0 +1,118 @@
+package agency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table concurrente indexée par des identifiants entiers denses (0, 1, 2...) : chaque valeur est rangée
+ * dans une case d'un tableau découpé en tranches, sans objet clé ni entrée par élément.
+ * <p>
+ * Les lectures et les mises à jour d'une case sont sans verrou (CAS) ; seul l'ajout d'une tranche,
+ * quand un identifiant dépasse la capacité, est sérialisé. Les valeurs null sont interdites.
+ */
+final class DenseIdMap<V> {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicReferenceArray<V>[] chunks;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    DenseIdMap() {
+        chunks = new AtomicReferenceArray[0];
+    }
+
+    /**
+     * Retourne la valeur de l'identifiant, ou null
+     * @param id l'identifiant
+     * @return la valeur, ou null
+     */
+    V get(int id) {
+        AtomicReferenceArray<V>[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        return chunk < current.length ? current[chunk].get(id & CHUNK_MASK) : null;
+    }
+
+    /**
+     * Associe la valeur à l'identifiant s'il n'a pas encore de valeur
+     * @param id l'identifiant
+     * @param value la valeur
+     * @return la valeur déjà présente, ou null si la valeur a été associée
+     */
+    V putIfAbsent(int id, V value) {
+        AtomicReferenceArray<V> chunk = chunk(id);
+        int slot = id & CHUNK_MASK;
+        while (true) {
+            if (chunk.compareAndSet(slot, null, value)) return null;
+            V previous = chunk.get(slot);
+            if (previous != null) return previous;
+        }
+    }
+
+    /**
+     * Associe la valeur à l'identifiant
+     * @param id l'identifiant
+     * @param value la valeur
+     * @return la valeur remplacée, ou null
+     */
+    V put(int id, V value) {
+        return chunk(id).getAndSet(id & CHUNK_MASK, value);
+    }
+
+    /**
+     * Retire la valeur de l'identifiant
+     * @param id l'identifiant
+     * @return la valeur retirée, ou null
+     */
+    V remove(int id) {
+        AtomicReferenceArray<V>[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        return chunk < current.length ? current[chunk].getAndSet(id & CHUNK_MASK, null) : null;
+    }
+
+    /**
+     * Retire la valeur de l'identifiant si elle est égale (au sens de equals) à la valeur attendue
+     * @param id l'identifiant
+     * @param value la valeur attendue
+     * @return true si la valeur a été retirée
+     */
+    boolean remove(int id, V value) {
+        AtomicReferenceArray<V>[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk >= current.length) return false;
+        int slot = id & CHUNK_MASK;
+        while (true) {
+            V present = current[chunk].get(slot);
+            if (present == null || !present.equals(value)) return false;
+            if (current[chunk].compareAndSet(slot, present, null)) return true;
+        }
+    }
+
+    /**
+     * Retourne la capacité courante : tous les identifiants ayant une valeur lui sont inférieurs
+     * @return la capacité
+     */
+    int capacity() {
+        return chunks.length << CHUNK_BITS;
+    }
+
+    private AtomicReferenceArray<V> chunk(int id) {
+        if (id < 0) throw new IndexOutOfBoundsException("Negative id: " + id);
+        AtomicReferenceArray<V>[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        return chunk < current.length ? current[chunk] : grow(chunk);
+    }
+
+    private synchronized AtomicReferenceArray<V> grow(int chunk) {
+        AtomicReferenceArray<V>[] current = chunks;
+        if (chunk >= current.length) {
+            AtomicReferenceArray<V>[] larger = Arrays.copyOf(current, Math.max(chunk + 1, current.length * 2));
+            for (int i = current.length; i < larger.length; i++) {
+                larger[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+            }
+            chunks = larger;
+            current = larger;
+        }
+        return current[chunk];
+    }
+}
@@ -0,0 +1,77 @@
+package agency;
+
+import java.util.*;
+
+/**
+ * Instantané immuable et versionné de la flotte d'une {@link RentalAgency}, dans l'ordre d'ajout.
+ * <p>
+ * Un instantané se parcourt et se pagine sans copie ni verrou, et reste valable après les modifications
+ * suivantes de l'agence. Les ajouts publient un nouvel instantané qui partage le tableau du précédent :
+ * chacun ne lit que ses {@link #size()} premières cases, que les ajouts suivants ne modifient jamais.
+ */
+public final class FleetSnapshot extends AbstractList<AbstractVehicle> implements RandomAccess {
+    private final AbstractVehicle[] elements;
+    private final int size;
+    private final long version;
+
+    private FleetSnapshot(AbstractVehicle[] elements, int size, long version) {
+        this.elements = elements;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * Construit l'instantané des véhicules, dans l'ordre de la collection
+     */
+    static FleetSnapshot of(Collection<AbstractVehicle> vehicles, long version) {
+        AbstractVehicle[] elements = vehicles.toArray(new AbstractVehicle[0]);
+        return new FleetSnapshot(elements, elements.length, version);
+    }
+
+    /**
+     * Retourne l'instantané suivant, avec un véhicule de plus ; à n'appeler que sur le dernier instantané
+     * publié (sous le verrou d'écriture de la flotte), seul autorisé à écrire au-delà de sa taille
+     */
+    FleetSnapshot append(AbstractVehicle vehicle, long version) {
+        AbstractVehicle[] next = elements;
+        if (size == next.length) next = Arrays.copyOf(next, Math.max(16, size + (size >> 1)));
+        next[size] = vehicle;
+        return new FleetSnapshot(next, size + 1, version);
+    }
+
+    /**
+     * Retourne la version de la flotte capturée, incrémentée à chaque ajout ou retrait
+     * @return la version
+     */
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public AbstractVehicle get(int index) {
+        return elements[Objects.checkIndex(index, size)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retourne une page de l'instantané, sans copie
+     * @param offset l'indice du premier véhicule
+     * @param limit le nombre maximal de véhicules
+     * @return les véhicules de la page, éventuellement moins que limit en fin de flotte
+     * @throws IllegalArgumentException si offset ou limit est négatif
+     */
+    public List<AbstractVehicle> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("Invalid page: " + offset + ", " + limit);
+        int from = Math.min(offset, size);
+        return subList(from, from + Math.min(limit, size - from));
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, size, Object[].class);
+    }
+}
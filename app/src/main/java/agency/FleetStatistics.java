@@ -0,0 +1,21 @@
+package agency;
+
+import java.util.function.Predicate;
+
+/**
+ * Statistiques de flotte utilisées par {@link CriterionPlanner} pour estimer la sélectivité des critères
+ */
+interface FleetStatistics {
+    /**
+     * Retourne le nombre de véhicules de la flotte
+     * @return le nombre de véhicules
+     */
+    int size();
+
+    /**
+     * Estime le nombre de véhicules satisfaisant le critère, ou -1 si aucun index ne le couvre
+     * @param criterion le critère
+     * @return le nombre estimé de véhicules, ou -1
+     */
+    long estimate(Predicate<? super AbstractVehicle> criterion);
+}
@@ -0,0 +1,66 @@
+package agency;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Partition portée par une {@link RentalAgency} du même processus
+ */
+final class LocalAgencyShard implements AgencyShard {
+    private final RentalAgency agency;
+
+    LocalAgencyShard(RentalAgency agency) {
+        this.agency = agency;
+    }
+
+    @Override
+    public boolean add(AbstractVehicle vehicle) {
+        return agency.add(vehicle);
+    }
+
+    @Override
+    public void remove(AbstractVehicle vehicle) {
+        agency.remove(vehicle);
+    }
+
+    @Override
+    public boolean contains(AbstractVehicle vehicle) {
+        return agency.contains(vehicle);
+    }
+
+    @Override
+    public List<AbstractVehicle> select(Predicate<AbstractVehicle> criterion) {
+        return agency.select(criterion);
+    }
+
+    @Override
+    public double rentVehicle(Client client, AbstractVehicle vehicle) {
+        return agency.rentVehicle(client, vehicle);
+    }
+
+    @Override
+    public void returnVehicle(Client client) {
+        agency.returnVehicle(client);
+    }
+
+    @Override
+    public boolean vehicleIsRented(AbstractVehicle vehicle) {
+        return agency.vehicleIsRented(vehicle);
+    }
+
+    @Override
+    public AgencyStatistics.Summary total() {
+        return agency.statistics().total();
+    }
+
+    @Override
+    public Map<String, AgencyStatistics.Summary> byBrand() {
+        return agency.statistics().byBrand();
+    }
+
+    @Override
+    public Map<Class<?>, AgencyStatistics.Summary> byType() {
+        return agency.statistics().byType();
+    }
+}
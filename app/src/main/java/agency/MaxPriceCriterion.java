@@ -1,15 +1,16 @@
 package agency;
 
-import java.util.List;
-import java.util.function.Predicate;
-
-public class MaxPriceCriterion implements Predicate<AbstractVehicle> {
+public class MaxPriceCriterion implements Criterion {
     private double maxPrice;
 
     public MaxPriceCriterion(double maxPrice) {
         this.maxPrice = maxPrice;
     }
 
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
     @Override
     public boolean test(AbstractVehicle abstractVehicle) {
         return abstractVehicle.dailyRentalPrice() <= maxPrice;
@@ -2,6 +2,8 @@ package agency;
 
 public class Motorbike extends AbstractVehicle {
     private int cylinderCapacity;
+    // le prix d'une moto ne dépend pas de l'année : il est calculé une fois pour toutes
+    private final double dailyRentalPrice;
 
     public Motorbike(String brand, String model, int productionYear, int cylinderCapacity) {
         super(brand, model, productionYear);
@@ -9,20 +11,43 @@ public class Motorbike extends AbstractVehicle {
             throw new IllegalArgumentException("Invalid cylinder capacity: " + cylinderCapacity);
         }
         this.cylinderCapacity = cylinderCapacity;
+        this.dailyRentalPrice = priceFor(cylinderCapacity);
+    }
+
+    /**
+     * renvoie la cylindrée de la moto en cm³
+     * @return la cylindrée
+     */
+    public int getCylinderCapacity() {
+        return cylinderCapacity;
     }
 
     @Override
     public double dailyRentalPrice() {
+        return dailyRentalPrice;
+    }
+
+    /**
+     * calcule le prix journalier d'une moto à partir de sa cylindrée, sans instance
+     * @param cylinderCapacity la cylindrée en cm³
+     * @return le prix journalier de location
+     */
+    static double priceFor(int cylinderCapacity) {
         return 0.25 * cylinderCapacity;
     }
 
     @Override
     public String getDetails() {
-        return "(" + cylinderCapacity + "cm³)";
+        return appendDetails(new StringBuilder(12)).toString();
+    }
+
+    @Override
+    protected StringBuilder appendDetails(StringBuilder builder) {
+        return builder.append('(').append(cylinderCapacity).append("cm³)");
     }
 
     @Override
-    public String toString() {
-        return "Motorbike " + super.toString();
+    public StringBuilder appendTo(StringBuilder builder) {
+        return super.appendTo(builder.append("Motorbike "));
     }
 }
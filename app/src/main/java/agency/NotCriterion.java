@@ -0,0 +1,24 @@
+package agency;
+
+import java.util.function.Predicate;
+
+public class NotCriterion implements Criterion {
+    private final Predicate<? super AbstractVehicle> term;
+
+    public NotCriterion(Predicate<? super AbstractVehicle> term) {
+        this.term = term;
+    }
+
+    /**
+     * Retourne le critère nié
+     * @return le critère nié
+     */
+    public Predicate<? super AbstractVehicle> getTerm() {
+        return term;
+    }
+
+    @Override
+    public boolean test(AbstractVehicle abstractVehicle) {
+        return !term.test(abstractVehicle);
+    }
+}
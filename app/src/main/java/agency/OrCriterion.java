@@ -0,0 +1,47 @@
+package agency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class OrCriterion implements Criterion {
+    private final List<Predicate<? super AbstractVehicle>> terms;
+
+    public OrCriterion(List<? extends Predicate<? super AbstractVehicle>> terms) {
+        this.terms = List.copyOf(terms);
+    }
+
+    /**
+     * Construit la disjonction de deux critères en aplatissant les disjonctions imbriquées
+     * @param left le premier critère
+     * @param right le second critère
+     * @return la disjonction des deux critères
+     */
+    static OrCriterion of(Predicate<? super AbstractVehicle> left, Predicate<? super AbstractVehicle> right) {
+        List<Predicate<? super AbstractVehicle>> terms = new ArrayList<>();
+        for (Predicate<? super AbstractVehicle> term : List.<Predicate<? super AbstractVehicle>>of(left, right)) {
+            if (term instanceof OrCriterion or) {
+                terms.addAll(or.terms);
+            } else {
+                terms.add(term);
+            }
+        }
+        return new OrCriterion(terms);
+    }
+
+    /**
+     * Retourne les termes de la disjonction dans leur ordre d'évaluation
+     * @return les termes de la disjonction
+     */
+    public List<Predicate<? super AbstractVehicle>> getTerms() {
+        return terms;
+    }
+
+    @Override
+    public boolean test(AbstractVehicle abstractVehicle) {
+        for (Predicate<? super AbstractVehicle> term : terms) {
+            if (term.test(abstractVehicle)) return true;
+        }
+        return false;
+    }
+}
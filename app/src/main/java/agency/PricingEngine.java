@@ -0,0 +1,38 @@
+package agency;
+
+import java.util.List;
+
+/**
+ * Moteur de tarification : calcule en une passe les prix journaliers d'un lot de véhicules.
+ * Le moteur par défaut ({@link RuleTablePricingEngine#DEFAULT}) applique les formules de {@link Car} et de {@link Motorbike}.
+ * <p>
+ * Les prix calculés ne sont pas ceux de l'agence : {@link RentalAgency} loue, sélectionne ({@link MaxPriceCriterion})
+ * et trie toujours au prix {@link AbstractVehicle#dailyRentalPrice()}. Un moteur sert aux calculs en lot
+ * ({@link RentalAgency#reprice(PricingEngine)}), dont l'appelant exploite lui-même le résultat.
+ */
+public interface PricingEngine {
+    /**
+     * Calcule les prix journaliers des véhicules du lot
+     * @param vehicles les véhicules
+     * @param prices le tableau recevant les prix, dans l'ordre des véhicules (au moins aussi long que le lot)
+     */
+    void computePrices(List<? extends AbstractVehicle> vehicles, double[] prices);
+
+    /**
+     * Calcule les prix journaliers de toutes les lignes d'une flotte en colonnes
+     * @param fleet la flotte en colonnes
+     * @param prices le tableau recevant les prix, dans l'ordre des lignes (au moins aussi long que la flotte)
+     */
+    void computePrices(ColumnarFleet fleet, double[] prices);
+
+    /**
+     * Calcule les prix journaliers des véhicules du lot dans un nouveau tableau
+     * @param vehicles les véhicules
+     * @return les prix, dans l'ordre des véhicules
+     */
+    default double[] computePrices(List<? extends AbstractVehicle> vehicles) {
+        double[] prices = new double[vehicles.size()];
+        computePrices(vehicles, prices);
+        return prices;
+    }
+}
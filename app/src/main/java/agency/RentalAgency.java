@@ -1,19 +1,81 @@
 package agency;
 
+import util.TimeProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Predicate;
 
+/**
+ * Agence de location, utilisable par plusieurs threads.
+ * <p>
+ * L'appartenance à la flotte est testée sans verrou ; l'ordre d'ajout n'est protégé que par un verrou
+ * lecture/écriture pris par add, remove et les parcours. Les lectures de la flotte entière passent par un
+ * {@link FleetSnapshot} immuable, partagé entre lecteurs tant que la flotte ne change pas. Les locations reposent sur deux tables
+ * concurrentes mises à jour par CAS : identifiant de client (voir {@link ClientRegistry}) vers véhicule
+ * et véhicule vers client. Des locations portant sur des véhicules et des clients différents ne se
+ * bloquent jamais entre elles.
+ * <p>
+ * Les véhicules peuvent aussi être réservés pour des périodes datées (voir {@link Booking}) ; un calendrier
+ * trié par véhicule refuse les réservations qui se chevauchent et répond aux questions de disponibilité.
+ * Une location sans dates occupe le véhicule à partir d'aujourd'hui et jusqu'à son retour.
+ * <p>
+ * La flotte est doublée d'index secondaires (marque, type, prix) qui permettent à {@link #select(Predicate)}
+ * de répondre aux {@link Criterion} indexables sans parcourir toute la flotte. Ces index sont construits
+ * à la première sélection, pour qu'un chargement massif de la flotte n'en paie pas le coût.
+ * <p>
+ * Les modifications (ajouts, retraits, locations, retours) sont notifiées aux {@link AgencyListener}
+ * enregistrés, par exemple un {@link RentalJournal} ou un {@link AgencyChangeFeed}, dans la section critique
+ * de chaque modification et juste avant de l'appliquer.
+ */
 public class RentalAgency {
-    private List<AbstractVehicle> vehicles;
-    private Map<Client, AbstractVehicle> rentedVehicles;
+    private static final int EXPORT_CHUNK_SIZE = 8192;
+    private static final int CHANGE_BATCH_SIZE = 1024;
+
+    private final Set<AbstractVehicle> members;
+    private final Set<AbstractVehicle> vehicles;
+    private final VehicleIndex index = new VehicleIndex();
+    private final CriterionPlanner planner = new CriterionPlanner(index);
+    private volatile boolean indexed;
+    private final ReadWriteLock fleetLock = new ReentrantReadWriteLock();
+    private long fleetVersion;
+    private volatile FleetSnapshot snapshot;
+    private final ClientRegistry clients = new ClientRegistry();
+    private final DenseIdMap<AbstractVehicle> rentedVehicles = new DenseIdMap<>();
+    private final Map<AbstractVehicle, Rental> renters;
+    private final AgencyStatistics statistics = new AgencyStatistics();
+    private volatile AgencyMetrics metrics = AgencyMetrics.DISABLED;
+    private final BookingCalendar calendar = new BookingCalendar();
+    private final List<AgencyListener> listeners = new CopyOnWriteArrayList<>();
 
     public RentalAgency() {
         this(new ArrayList<>());
     }
 
     public RentalAgency(List<AbstractVehicle> vehicles) {
-        this.vehicles = new ArrayList<>(vehicles);
-        rentedVehicles = new HashMap<>();
+        this.vehicles = new LinkedHashSet<>(vehicles);
+        members = ConcurrentHashMap.newKeySet(this.vehicles.size());
+        members.addAll(this.vehicles);
+        statistics.vehiclesAdded(this.vehicles);
+        renters = new ConcurrentHashMap<>();
     }
 
     /**
@@ -22,91 +84,1074 @@ public class RentalAgency {
      * @return true si le véhicule a été ajouté, false sinon
      */
     public boolean add(AbstractVehicle vehicle) {
-        if (contains(vehicle)) return false;
-        vehicles.add(vehicle);
+        AgencyMetrics metrics = this.metrics;
+        if (!metrics.isEnabled()) return addVehicle(vehicle);
+        long start = System.nanoTime();
+        boolean added = addVehicle(vehicle);
+        metrics.addLatency.record(System.nanoTime() - start);
+        metrics.adds.increment();
+        return added;
+    }
+
+    private boolean addVehicle(AbstractVehicle vehicle) {
+        fleetLock.writeLock().lock();
+        try {
+            if (members.contains(vehicle)) return false;
+            // écriture anticipée : si un observateur (un journal) refuse l'ajout, il n'est pas appliqué
+            if (!listeners.isEmpty()) notifyListeners(l -> l.vehicleAdded(vehicle), l -> l.vehicleRemoved(vehicle));
+            members.add(vehicle);
+            vehicles.add(vehicle);
+            long version = ++fleetVersion;
+            FleetSnapshot current = snapshot;
+            if (current != null) snapshot = current.append(vehicle, version);
+            if (indexed) index.add(vehicle);
+            statistics.vehicleAdded(vehicle);
+        } finally {
+            fleetLock.writeLock().unlock();
+        }
+        operationCompleted();
         return true;
     }
 
     /**
-     * Supprime un véhicule de l'agence si il est présent ou lève une exception
+     * Supprime un véhicule de l'agence si il est présent ou lève une exception.
+     * Ses réservations datées sont oubliées et sa location en cours, s'il est loué, prend fin : le client
+     * ne loue plus de véhicule et la location est retirée des agrégats.
      * @param vehicle le véhicule
      * @throws UnknownVehicleException si le véhicule n'est pas présent dans l'agence
      */
     public void remove(AbstractVehicle vehicle) {
-        if (!contains(vehicle)) throw new UnknownVehicleException(vehicle);
-        vehicles.remove(vehicle);
+        fleetLock.writeLock().lock();
+        try {
+            if (!members.contains(vehicle)) throw new UnknownVehicleException(vehicle);
+            // sous le verrou du véhicule : une location ou un retour est notifié avant ou après le retrait, jamais entre
+            calendar.remove(vehicle, () -> {
+                if (!listeners.isEmpty()) notifyListeners(l -> l.vehicleRemoved(vehicle), l -> l.vehicleAdded(vehicle));
+                members.remove(vehicle);
+                endRental(vehicle);
+            });
+            vehicles.remove(vehicle);
+            fleetVersion++;
+            snapshot = null;
+            if (indexed) index.remove(vehicle);
+            statistics.vehicleRemoved(vehicle);
+        } finally {
+            fleetLock.writeLock().unlock();
+        }
+        operationCompleted();
+    }
+
+    /**
+     * Enregistre un observateur des modifications de l'agence
+     * @param listener l'observateur
+     */
+    public void addListener(AgencyListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Ouvre un flux des modifications de l'agence, livré par lots d'au plus {@value #CHANGE_BATCH_SIZE}
+     * événements sur le pool fork-join commun, avec un tampon de {@link Flow#defaultBufferSize()} lots par abonné
+     * (voir {@link AgencyChangeFeed#attach} pour d'autres réglages)
+     * @param policy le comportement face à un abonné trop lent
+     * @return le flux, à fermer quand il n'est plus utilisé
+     */
+    public AgencyChangeFeed changeFeed(AgencyChangeFeed.SlowSubscriberPolicy policy) {
+        return AgencyChangeFeed.attach(this, ForkJoinPool.commonPool(), policy, Flow.defaultBufferSize(), CHANGE_BATCH_SIZE);
+    }
+
+    /**
+     * Retire un observateur des modifications de l'agence
+     * @param listener l'observateur
+     */
+    public void removeListener(AgencyListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void operationCompleted() {
+        for (AgencyListener listener : listeners) {
+            listener.operationCompleted();
+        }
+    }
+
+    /**
+     * Notifie une modification aux observateurs. Si l'un d'eux lève une exception (un journal en échec ou fermé,
+     * par exemple), ceux déjà notifiés reçoivent la notification inverse puis l'exception est propagée :
+     * l'appelant n'applique pas la modification, ou l'annule.
+     * @param change la notification
+     * @param inverse la notification inverse
+     */
+    private void notifyListeners(Consumer<AgencyListener> change, Consumer<AgencyListener> inverse) {
+        ListIterator<AgencyListener> notified = listeners.listIterator();
+        try {
+            while (notified.hasNext()) {
+                change.accept(notified.next());
+            }
+        } catch (RuntimeException e) {
+            notified.previous();
+            while (notified.hasPrevious()) {
+                AgencyListener listener = notified.previous();
+                try {
+                    inverse.accept(listener);
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
     }
 
     /**
-     * Retourne true si le véhicule est présent dans l'agence, false sinon
+     * Notifie à tous les observateurs l'inverse d'une modification déjà notifiée qui n'a pas pu être appliquée ;
+     * leurs exceptions sont ajoutées à celle de l'échec
+     */
+    private void revert(RuntimeException failure, Consumer<AgencyListener> inverse) {
+        for (AgencyListener listener : listeners) {
+            try {
+                inverse.accept(listener);
+            } catch (RuntimeException suppressed) {
+                failure.addSuppressed(suppressed);
+            }
+        }
+    }
+
+    /**
+     * Retourne true si le véhicule est présent dans l'agence, false sinon (en temps constant)
      * @param vehicle le véhicule
      * @return true si le véhicule est présent dans l'agence, false sinon
      */
     public boolean contains(AbstractVehicle vehicle) {
-        return vehicles.contains(vehicle);
+        return members.contains(vehicle);
     }
 
+    /**
+     * Retourne les véhicules de l'agence dans leur ordre d'ajout, sous forme d'une liste non modifiable
+     * qui ne suit pas les modifications ultérieures (voir {@link #snapshot()})
+     * @return la liste des véhicules de l'agence
+     */
     public List<AbstractVehicle> getVehicles() {
-        return new ArrayList<>(vehicles);
+        return snapshot();
+    }
+
+    /**
+     * Retourne l'instantané courant de la flotte, sans copie quand elle n'a pas été modifiée depuis le
+     * précédent ou seulement par des ajouts ; après un retrait, le premier lecteur reconstruit l'instantané
+     * @return l'instantané de la flotte
+     */
+    public FleetSnapshot snapshot() {
+        FleetSnapshot current = snapshot;
+        if (current != null) return current;
+        fleetLock.readLock().lock();
+        try {
+            current = snapshot;
+            if (current == null) {
+                current = FleetSnapshot.of(vehicles, fleetVersion);
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            fleetLock.readLock().unlock();
+        }
     }
 
     /**
-     * Retourne la liste des véhicules de l'agence qui satisfont le critère
+     * Retourne la liste des véhicules de l'agence qui satisfont le critère, dans leur ordre d'ajout.
+     * Le critère est d'abord planifié ({@link CriterionPlanner}) : les termes sont réordonnés selon leur
+     * coût et leur sélectivité, et le terme indexé le plus sélectif fournit les candidats.
+     * Les prédicats sans index parcourent toute la flotte.
      * @param criterion le critère
      * @return la liste des véhicules de l'agence qui satisfont le critère
      */
     public List<AbstractVehicle> select(Predicate<AbstractVehicle> criterion) {
-        return vehicles.stream().filter(criterion).toList();
+        AgencyMetrics metrics = this.metrics;
+        if (!metrics.isEnabled()) return selectVehicles(criterion);
+        long start = System.nanoTime();
+        List<AbstractVehicle> selected = selectVehicles(criterion);
+        metrics.selectLatency.record(System.nanoTime() - start);
+        metrics.selects.increment();
+        return selected;
+    }
+
+    private List<AbstractVehicle> selectVehicles(Predicate<AbstractVehicle> criterion) {
+        prepareIndex();
+        fleetLock.readLock().lock();
+        try {
+            CriterionPlanner.Plan plan = planner.plan(criterion);
+            Collection<AbstractVehicle> source = plan.indexTerm() == null ? vehicles : index.candidates(plan.indexTerm());
+            if (plan.residual() == null) return List.copyOf(source);
+            return source.stream().filter(plan.residual()).toList();
+        } finally {
+            fleetLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Variante parallèle de {@link #select(Predicate)} pour les très grandes flottes et les critères coûteux.
+     * Les candidats sont copiés sous le verrou de flotte puis filtrés hors verrou sur le pool fork-join commun ;
+     * le résultat respecte l'ordre d'ajout, comme {@link #select(Predicate)}.
+     * @param criterion le critère, qui doit pouvoir être évalué depuis plusieurs threads
+     * @return la liste des véhicules de l'agence qui satisfont le critère
+     */
+    public List<AbstractVehicle> selectParallel(Predicate<AbstractVehicle> criterion) {
+        prepareIndex();
+        CriterionPlanner.Plan plan;
+        AbstractVehicle[] source;
+        fleetLock.readLock().lock();
+        try {
+            plan = planner.plan(criterion);
+            source = (plan.indexTerm() == null ? vehicles : index.candidates(plan.indexTerm())).toArray(new AbstractVehicle[0]);
+        } finally {
+            fleetLock.readLock().unlock();
+        }
+        if (plan.residual() == null) return List.of(source);
+        return Arrays.stream(source).parallel().filter(plan.residual()).toList();
+    }
+
+    /**
+     * Transmet au consommateur, dans l'ordre d'ajout, chaque véhicule qui satisfait le critère,
+     * sans construire la liste des résultats.
+     * Le parcours se fait sous le verrou de flotte : le consommateur ne doit pas ajouter ni retirer de véhicule.
+     * @param criterion le critère
+     * @param consumer le consommateur des véhicules sélectionnés
+     * @return le nombre de véhicules transmis
+     */
+    public long forEachSelected(Predicate<AbstractVehicle> criterion, Consumer<? super AbstractVehicle> consumer) {
+        prepareIndex();
+        fleetLock.readLock().lock();
+        try {
+            CriterionPlanner.Plan plan = planner.plan(criterion);
+            Collection<AbstractVehicle> source = plan.indexTerm() == null ? vehicles : index.candidates(plan.indexTerm());
+            long count = 0;
+            for (AbstractVehicle vehicle : source) {
+                if (plan.residual() == null || plan.residual().test(vehicle)) {
+                    consumer.accept(vehicle);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            fleetLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retourne les k premiers véhicules qui satisfont le critère selon l'ordre donné, sans trier toute la sélection :
+     * les candidats, lus directement dans les groupes de l'index ou dans la flotte, passent par un tas borné
+     * à k éléments (O(n log k)). Pour {@link VehicleOrder#CHEAPEST_FIRST}
+     * et {@link VehicleOrder#MOST_EXPENSIVE_FIRST}, l'index des prix est parcouru dans l'ordre et le parcours
+     * s'arrête au k-ième véhicule retenu, quand ce parcours est estimé moins coûteux que celui des candidats.
+     * À égalité selon l'ordre, les véhicules sont rendus dans leur ordre d'ajout.
+     * @param criterion le critère
+     * @param order l'ordre de tri
+     * @param k le nombre maximal de véhicules
+     * @return au plus k véhicules, triés
+     * @throws IllegalArgumentException si k est négatif
+     */
+    public List<AbstractVehicle> selectTopK(Predicate<AbstractVehicle> criterion, Comparator<? super AbstractVehicle> order, int k) {
+        if (k < 0) throw new IllegalArgumentException("Negative k: " + k);
+        if (k == 0) return List.of();
+        prepareIndex();
+        fleetLock.readLock().lock();
+        try {
+            CriterionPlanner.Plan plan = planner.plan(criterion);
+            if (order == VehicleOrder.CHEAPEST_FIRST || order == VehicleOrder.MOST_EXPENSIVE_FIRST) {
+                long candidates = plan.indexTerm() == null ? index.size() : index.estimate(plan.indexTerm());
+                // parcours par prix, sans copie : environ k / sélectivité véhicules visités, contre tous les candidats
+                // pour le tas
+                if ((double) k * index.size() < (double) candidates * candidates) {
+                    List<AbstractVehicle> selected = new ArrayList<>(k);
+                    index.forEachByPrice(order == VehicleOrder.MOST_EXPENSIVE_FIRST, vehicle -> {
+                        if (criterion.test(vehicle)) selected.add(vehicle);
+                        return selected.size() < k;
+                    });
+                    return selected;
+                }
+            }
+            TopK top = new TopK(plan.residual(), order, k);
+            if (plan.indexTerm() == null || !index.forEachCandidate(plan.indexTerm(), top)) {
+                TopK all = plan.indexTerm() == null ? top : new TopK(criterion, order, k);
+                long rank = 0;
+                for (AbstractVehicle vehicle : vehicles) {
+                    all.accept(vehicle, rank++);
+                }
+                return all.selected();
+            }
+            return top.selected();
+        } finally {
+            fleetLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tas borné aux k meilleurs véhicules retenus, dont la racine est le moins bon. Les véhicules peuvent arriver
+     * dans n'importe quel ordre : à égalité selon l'ordre de tri, le plus petit rang d'ajout l'emporte.
+     */
+    private static final class TopK implements ObjLongConsumer<AbstractVehicle> {
+        private record Ranked(AbstractVehicle vehicle, long rank) {
+        }
+
+        private final Predicate<? super AbstractVehicle> residual;
+        private final Comparator<? super AbstractVehicle> order;
+        private final Comparator<Ranked> ranking;
+        private final PriorityQueue<Ranked> heap;
+        private final int k;
+
+        TopK(Predicate<? super AbstractVehicle> residual, Comparator<? super AbstractVehicle> order, int k) {
+            this.residual = residual;
+            this.order = order;
+            this.ranking = Comparator.<Ranked, AbstractVehicle>comparing(Ranked::vehicle, order).thenComparingLong(Ranked::rank);
+            this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, ranking.reversed());
+            this.k = k;
+        }
+
+        @Override
+        public void accept(AbstractVehicle vehicle, long rank) {
+            if (residual != null && !residual.test(vehicle)) return;
+            if (heap.size() < k) {
+                heap.add(new Ranked(vehicle, rank));
+                return;
+            }
+            Ranked worst = heap.peek();
+            int comparison = order.compare(vehicle, worst.vehicle());
+            if (comparison < 0 || comparison == 0 && rank < worst.rank()) {
+                heap.poll();
+                heap.add(new Ranked(vehicle, rank));
+            }
+        }
+
+        List<AbstractVehicle> selected() {
+            Ranked[] ranked = heap.toArray(new Ranked[0]);
+            Arrays.sort(ranked, ranking);
+            List<AbstractVehicle> selected = new ArrayList<>(ranked.length);
+            for (Ranked r : ranked) {
+                selected.add(r.vehicle());
+            }
+            return selected;
+        }
+    }
+
+    /**
+     * Retourne une page des véhicules qui satisfont le critère, triés selon l'ordre donné
+     * (voir {@link #selectTopK(Predicate, Comparator, int)}) : le coût dépend de offset + limit et non de
+     * la taille de la sélection
+     * @param criterion le critère
+     * @param order l'ordre de tri
+     * @param offset le rang du premier véhicule de la page
+     * @param limit le nombre maximal de véhicules de la page
+     * @return les véhicules de la page, triés
+     * @throws IllegalArgumentException si offset ou limit est négatif
+     */
+    public List<AbstractVehicle> selectSorted(Predicate<AbstractVehicle> criterion, Comparator<? super AbstractVehicle> order,
+                                              int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("Invalid page: " + offset + ", " + limit);
+        List<AbstractVehicle> top = selectTopK(criterion, order, (int) Math.min((long) offset + limit, Integer.MAX_VALUE));
+        return top.size() <= offset ? List.of() : top.subList(offset, top.size());
+    }
+
+    /**
+     * Calcule en un lot, avec le moteur de tarification donné, les prix journaliers de toute la flotte.
+     * C'est un calcul autonome, par exemple pour simuler une grille tarifaire : l'agence n'en garde rien et
+     * continue de louer, de sélectionner et de trier au prix {@link AbstractVehicle#dailyRentalPrice()}
+     * @param engine le moteur de tarification
+     * @return les prix, dans l'ordre d'ajout des véhicules (celui de {@link #getVehicles()})
+     */
+    public double[] reprice(PricingEngine engine) {
+        return engine.computePrices(getVehicles());
+    }
+
+    /**
+     * Construit une représentation colonne de la flotte actuelle, dans l'ordre d'ajout,
+     * pour les parcours massifs par marque ou par prix. C'est une copie détachée : les modifications
+     * ultérieures de l'agence n'y apparaissent pas et les locations n'y figurent pas ; ses véhicules
+     * sont ceux de l'agence au moment de la copie (voir {@link ColumnarFleet})
+     * @return la flotte en colonnes
+     * @throws IllegalArgumentException si la flotte contient un véhicule ni voiture ni moto
+     */
+    public ColumnarFleet toColumnar() {
+        fleetLock.readLock().lock();
+        try {
+            return ColumnarFleet.of(vehicles);
+        } finally {
+            fleetLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Construit les index secondaires s'ils ne le sont pas encore, ou reconstruit l'index des prix si l'année a changé
+     */
+    private void prepareIndex() {
+        if (indexed && !index.pricesAreStale()) return;
+        fleetLock.writeLock().lock();
+        try {
+            if (!indexed) {
+                vehicles.forEach(index::add);
+                indexed = true;
+            } else if (index.pricesAreStale()) {
+                index.reindexPrices();
+            }
+        } finally {
+            fleetLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Affiche les véhicules de l'agence qui satisfont le critère
+     * Affiche les véhicules de l'agence qui satisfont le critère, une ligne par véhicule,
+     * par blocs écrits en une fois sur la sortie standard
      * @param criterion le critère
      */
     public void printSelectedVehicles(Predicate<AbstractVehicle> criterion) {
-        select(criterion).forEach(System.out::println);
+        try {
+            render(select(criterion), System.out::append);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.flush();
+    }
+
+    /**
+     * Écrit les véhicules de l'agence qui satisfont le critère, une ligne par véhicule, avec un seul tampon réutilisé
+     * @param criterion le critère
+     * @param writer la destination, vidée (flush) à la fin de l'export
+     * @return le nombre de véhicules écrits
+     * @throws IOException si l'écriture échoue
+     */
+    public long exportSelectedVehicles(Predicate<AbstractVehicle> criterion, Writer writer) throws IOException {
+        char[] chars = new char[EXPORT_CHUNK_SIZE * 2];
+        long count = render(select(criterion), chunk -> {
+            int length = chunk.length();
+            char[] target = length <= chars.length ? chars : new char[length];
+            chunk.getChars(0, length, target, 0);
+            writer.write(target, 0, length);
+        });
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Écrit en UTF-8 les véhicules de l'agence qui satisfont le critère, une ligne par véhicule,
+     * en réutilisant un seul tampon de caractères et un seul tampon d'octets
+     * @param criterion le critère
+     * @param channel la destination
+     * @return le nombre de véhicules écrits
+     * @throws IOException si l'écriture échoue
+     */
+    public long exportSelectedVehicles(Predicate<AbstractVehicle> criterion, WritableByteChannel channel) throws IOException {
+        return exportVehicles(select(criterion), channel);
+    }
+
+    /**
+     * Écrit en UTF-8 des véhicules déjà sélectionnés (par exemple par {@link #select(Predicate)}), une ligne
+     * par véhicule, par blocs et avec les mêmes tampons que {@link #exportSelectedVehicles(Predicate, WritableByteChannel)}
+     * @param selected les véhicules
+     * @param channel la destination
+     * @return le nombre de véhicules écrits
+     * @throws IOException si l'écriture échoue
+     */
+    public long exportVehicles(List<AbstractVehicle> selected, WritableByteChannel channel) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocate(EXPORT_CHUNK_SIZE * 2);
+        long count = render(selected, chunk -> encode(encoder, CharBuffer.wrap(chunk), bytes, channel, false));
+        encode(encoder, CharBuffer.allocate(0), bytes, channel, true);
+        while (encoder.flush(bytes).isOverflow()) {
+            write(bytes, channel);
+        }
+        write(bytes, channel);
+        return count;
+    }
+
+    private static void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer bytes,
+                               WritableByteChannel channel, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) result.throwException();
+            if (!result.isOverflow()) return;
+            write(bytes, channel);
+        }
+    }
+
+    private static void write(ByteBuffer bytes, WritableByteChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    @FunctionalInterface
+    private interface ChunkSink {
+        void write(StringBuilder chunk) throws IOException;
     }
 
     /**
-     * Loue un véhicule à un client
+     * Rend les véhicules ligne par ligne dans un tampon réutilisé, transmis à la destination par blocs de lignes complètes
+     */
+    private static long render(List<AbstractVehicle> selected, ChunkSink sink) throws IOException {
+        String separator = System.lineSeparator();
+        StringBuilder buffer = new StringBuilder(EXPORT_CHUNK_SIZE + 256);
+        for (AbstractVehicle vehicle : selected) {
+            vehicle.appendTo(buffer);
+            buffer.append(separator);
+            if (buffer.length() >= EXPORT_CHUNK_SIZE) {
+                sink.write(buffer);
+                buffer.setLength(0);
+            }
+        }
+        if (!buffer.isEmpty()) sink.write(buffer);
+        return selected.size();
+    }
+
+    /**
+     * Loue un véhicule à un client.
+     * Le véhicule puis le client sont réservés par CAS : un véhicule n'a jamais deux locataires
+     * et un client ne loue jamais deux véhicules, même sous accès concurrents.
+     * Le client est enregistré dans le registre des clients de l'agence s'il ne l'est pas déjà,
+     * une fois la location acceptée : un refus ne fait pas grossir le registre.
      * @param client le client
      * @param vehicle le véhicule
      * @throws UnknownVehicleException si le véhicule n'est pas présent dans l'agence
-     * @throws IllegalStateException si le client loue déjà un véhicule
+     * @throws IllegalStateException si le client loue déjà un véhicule, si le véhicule est loué
+     *                               ou s'il est réservé pour aujourd'hui
      * @return le prix journalier de location du véhicule
      */
     public double rentVehicle(Client client, AbstractVehicle vehicle) {
+        AgencyMetrics metrics = this.metrics;
+        if (!metrics.isEnabled()) return rent(client, vehicle);
+        long start = System.nanoTime();
+        try {
+            double price = rent(client, vehicle);
+            metrics.rentLatency.record(System.nanoTime() - start);
+            metrics.rents.increment();
+            return price;
+        } catch (RuntimeException e) {
+            metrics.rejected(e);
+            throw e;
+        }
+    }
+
+    private double rent(Client client, AbstractVehicle vehicle) {
+        if (!contains(vehicle)) throw new UnknownVehicleException(vehicle);
+        if (aVehicleIsRentedBy(client)) throw RentalResult.CLIENT_ALREADY_RENTING.toException(vehicle);
+        Rental rental = new Rental(client, vehicle.dailyRentalPrice());
+        RentalResult result = claim(rental, vehicle);
+        if (!result.isRented()) throw result.toException(vehicle);
+        operationCompleted();
+        return rental.dailyPrice();
+    }
+
+    /**
+     * Tente de louer un véhicule à un client sans lever d'exception en cas de refus : mêmes règles et mêmes
+     * garanties que {@link #rentVehicle(Client, AbstractVehicle)}, pour les appelants dont beaucoup de
+     * tentatives sont refusées
+     * @param client le client
+     * @param vehicle le véhicule
+     * @return {@link RentalResult#RENTED} si le véhicule a été loué, sinon la raison du refus
+     */
+    public RentalResult tryRent(Client client, AbstractVehicle vehicle) {
+        return tryRent(client, vehicle, price -> {
+        });
+    }
+
+    /**
+     * Variante de {@link #tryRent(Client, AbstractVehicle)} qui transmet le prix journalier de la location
+     * acceptée, celui retenu pour la location et ses agrégats (et non un prix recalculé ensuite)
+     * @param client le client
+     * @param vehicle le véhicule
+     * @param rented appelé avec le prix journalier de location si le véhicule a été loué
+     * @return {@link RentalResult#RENTED} si le véhicule a été loué, sinon la raison du refus
+     */
+    public RentalResult tryRent(Client client, AbstractVehicle vehicle, DoubleConsumer rented) {
+        AgencyMetrics metrics = this.metrics;
+        if (!metrics.isEnabled()) return attemptRent(client, vehicle, rented);
+        long start = System.nanoTime();
+        RentalResult result = attemptRent(client, vehicle, rented);
+        if (result.isRented()) {
+            metrics.rentLatency.record(System.nanoTime() - start);
+            metrics.rents.increment();
+        } else {
+            metrics.rejected(result);
+        }
+        return result;
+    }
+
+    private RentalResult attemptRent(Client client, AbstractVehicle vehicle, DoubleConsumer rented) {
+        if (!contains(vehicle)) return RentalResult.UNKNOWN_VEHICLE;
+        if (aVehicleIsRentedBy(client)) return RentalResult.CLIENT_ALREADY_RENTING;
+        Rental rental = new Rental(client, vehicle.dailyRentalPrice());
+        RentalResult result = claim(rental, vehicle);
+        if (result.isRented()) {
+            operationCompleted();
+            rented.accept(rental.dailyPrice());
+        }
+        return result;
+    }
+
+    /**
+     * Location en cours d'un véhicule
+     * @param client le client
+     * @param dailyPrice le prix journalier au moment de la location, retiré des agrégats au retour
+     */
+    private record Rental(Client client, double dailyPrice) {
+    }
+
+    /**
+     * Réserve le client par CAS, notifie la location puis l'applique, sous le verrou du véhicule dans le
+     * calendrier : une réservation datée, un retour ou un retrait du véhicule ne peut pas s'intercaler entre
+     * les contrôles, la notification et la location. Le client n'est enregistré qu'une fois le véhicule
+     * réservable ; en cas de refus, les tables sont laissées inchangées.
+     * @return {@link RentalResult#RENTED}, ou la raison du refus
+     * @throws RuntimeException l'exception d'un observateur qui refuse la location, qui n'est pas appliquée
+     */
+    private RentalResult claim(Rental rental, AbstractVehicle vehicle) {
+        return calendar.claim(vehicle, bookedToday -> {
+            if (renters.containsKey(vehicle)) return RentalResult.VEHICLE_ALREADY_RENTED;
+            if (!contains(vehicle)) return RentalResult.UNKNOWN_VEHICLE;
+            if (bookedToday) return RentalResult.VEHICLE_BOOKED;
+            Client client = rental.client();
+            int id = clients.register(client);
+            if (rentedVehicles.putIfAbsent(id, vehicle) != null) return RentalResult.CLIENT_ALREADY_RENTING;
+            if (!listeners.isEmpty()) {
+                try {
+                    notifyListeners(l -> l.vehicleRented(client, vehicle), l -> l.vehicleReturned(client, vehicle));
+                } catch (RuntimeException e) {
+                    rentedVehicles.remove(id, vehicle);
+                    throw e;
+                }
+            }
+            renters.put(vehicle, rental);
+            statistics.vehicleRented(vehicle, rental.dailyPrice());
+            return RentalResult.RENTED;
+        });
+    }
+
+    /**
+     * Met fin à la location d'un véhicule retiré de la flotte, sous son verrou dans le calendrier :
+     * aucune location du véhicule ne peut s'intercaler
+     */
+    private void endRental(AbstractVehicle vehicle) {
+        Rental rental = renters.remove(vehicle);
+        if (rental != null) {
+            statistics.vehicleReturned(vehicle, rental.dailyPrice());
+            int id = clients.idOf(rental.client());
+            if (id >= 0) rentedVehicles.remove(id, vehicle);
+        }
+    }
+
+    /**
+     * Libère le véhicule loué par le client (table inverse) et retire la location des agrégats
+     * @return la location terminée, ou null si le véhicule n'était pas loué par ce client
+     */
+    private Rental release(AbstractVehicle vehicle, Client client) {
+        Rental rental = renters.get(vehicle);
+        if (rental != null && rental.client().equals(client) && renters.remove(vehicle, rental)) {
+            statistics.vehicleReturned(vehicle, rental.dailyPrice());
+            return rental;
+        }
+        return null;
+    }
+
+    /**
+     * Réserve un véhicule pour une période datée, si aucune autre réservation ne la chevauche.
+     * Un client peut détenir plusieurs réservations.
+     * @param client le client
+     * @param vehicle le véhicule
+     * @param start le premier jour de location
+     * @param end le dernier jour de location (inclus)
+     * @throws UnknownVehicleException si le véhicule n'est pas présent dans l'agence
+     * @throws IllegalStateException si la période chevauche une réservation du véhicule, ou s'il est loué
+     *                               sans dates et que la période ne se termine pas avant aujourd'hui
+     * @throws IllegalArgumentException si la période se termine avant de commencer
+     * @return le prix journalier de location du véhicule
+     */
+    public double rentVehicle(Client client, AbstractVehicle vehicle, LocalDate start, LocalDate end) {
         if (!contains(vehicle)) throw new UnknownVehicleException(vehicle);
-        if (aVehicleIsRentedBy(client)) throw new IllegalStateException("Client already has a rented vehicle");
-        if (vehicleIsRented(vehicle)) throw new IllegalStateException("Vehicle already rented");
-        rentedVehicles.put(client, vehicle);
+        Booking booking = new Booking(client, vehicle, start, end);
+        boolean booked = calendar.book(booking, committed -> {
+            // sous le verrou du véhicule : un retrait ou une location sans dates ne peut pas s'intercaler
+            if (!contains(vehicle)) throw new UnknownVehicleException(vehicle);
+            // une location sans dates n'a pas de fin connue
+            if (renters.containsKey(vehicle) && end.toEpochDay() >= TimeProvider.currentEpochDay()) {
+                throw new IllegalStateException("Vehicle already rented");
+            }
+            notifyListeners(l -> l.vehicleBooked(committed), l -> l.bookingCancelled(committed));
+        });
+        if (!booked) throw new IllegalStateException("Vehicle already booked for this period");
+        operationCompleted();
         return vehicle.dailyRentalPrice();
     }
 
+    /**
+     * Annule la réservation datée d'un client
+     * @param client le client
+     * @param vehicle le véhicule
+     * @param start le premier jour de la réservation
+     * @return true si la réservation a été annulée, false si elle n'existe pas
+     */
+    public boolean cancelBooking(Client client, AbstractVehicle vehicle, LocalDate start) {
+        boolean cancelled = calendar.cancel(client, vehicle, start,
+                booking -> notifyListeners(l -> l.bookingCancelled(booking), l -> l.vehicleBooked(booking)));
+        if (cancelled) operationCompleted();
+        return cancelled;
+    }
+
+    /**
+     * Retourne les réservations datées du véhicule, triées par premier jour
+     * @param vehicle le véhicule
+     * @return les réservations du véhicule
+     */
+    public List<Booking> bookings(AbstractVehicle vehicle) {
+        return calendar.bookings(vehicle);
+    }
+
+    /**
+     * Retourne true si le véhicule est libre sur toute la période : aucune réservation ne la chevauche
+     * et il n'est pas loué sans dates (sauf si la période se termine avant aujourd'hui).
+     * Le calendrier du véhicule est consulté en temps logarithmique.
+     * @param vehicle le véhicule
+     * @param from le premier jour de la période
+     * @param to le dernier jour de la période (inclus)
+     * @return true si le véhicule est libre sur la période
+     */
+    public boolean isAvailable(AbstractVehicle vehicle, LocalDate from, LocalDate to) {
+        return isAvailable(vehicle, from.toEpochDay(), to.toEpochDay(), TimeProvider.currentEpochDay());
+    }
+
+    private boolean isAvailable(AbstractVehicle vehicle, long from, long to, long today) {
+        if (to >= today && renters.containsKey(vehicle)) return false;
+        return calendar.isFree(vehicle, from, to);
+    }
+
+    /**
+     * Retourne les véhicules de l'agence libres sur toute la période, dans leur ordre d'ajout
+     * @param from le premier jour de la période
+     * @param to le dernier jour de la période (inclus)
+     * @return les véhicules disponibles
+     * @throws IllegalArgumentException si la période se termine avant de commencer
+     */
+    public List<AbstractVehicle> availableVehicles(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) throw new IllegalArgumentException("Period ends before it starts: " + from + " > " + to);
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        long today = TimeProvider.currentEpochDay();
+        List<AbstractVehicle> available = new ArrayList<>();
+        fleetLock.readLock().lock();
+        try {
+            for (AbstractVehicle vehicle : vehicles) {
+                if (isAvailable(vehicle, first, last, today)) available.add(vehicle);
+            }
+        } finally {
+            fleetLock.readLock().unlock();
+        }
+        return available;
+    }
+
+    /**
+     * Retourne une copie de toutes les réservations datées
+     * @return les réservations
+     */
+    List<Booking> allBookings() {
+        return calendar.all();
+    }
+
+    /**
+     * Rejoue une réservation lue dans un journal ou un instantané, sans contrôle ni notification :
+     * elle remplace les réservations du véhicule qu'elle chevauche
+     * @param booking la réservation
+     */
+    void replayBook(Booking booking) {
+        calendar.replayBook(booking);
+    }
+
+    /**
+     * Rejoue une annulation lue dans un journal : sans effet si la réservation n'existe plus
+     * @param booking la réservation
+     */
+    void replayCancel(Booking booking) {
+        calendar.replayCancel(booking);
+    }
+
+    /**
+     * Loue un lot de véhicules, tout ou rien : le lot entier est validé en une passe, puis chaque location
+     * est appliquée ; si l'une échoue (modification concurrente), celles déjà appliquées sont annulées.
+     * Chaque location est notifiée quand elle est appliquée, et son annulation par la notification inverse
+     * (sauf si le client a rendu le véhicule entre-temps) ; {@link AgencyListener#operationCompleted()}
+     * n'est appelée qu'une fois pour tout le lot.
+     * @param rentals les locations (client vers véhicule)
+     * @throws UnknownVehicleException si un véhicule n'est pas présent dans l'agence
+     * @throws IllegalStateException si un véhicule est déjà loué ou si un client loue déjà un véhicule
+     * @throws IllegalArgumentException si un même véhicule apparaît deux fois dans le lot
+     * @return les prix journaliers de location, dans l'ordre d'itération du lot
+     */
+    public double[] rentVehicles(Map<Client, ? extends AbstractVehicle> rentals) {
+        int size = rentals.size();
+        Client[] batchClients = new Client[size];
+        AbstractVehicle[] batchVehicles = new AbstractVehicle[size];
+        Set<AbstractVehicle> seen = new HashSet<>(size * 2);
+        int i = 0;
+        for (Map.Entry<Client, ? extends AbstractVehicle> rental : rentals.entrySet()) {
+            Client client = rental.getKey();
+            AbstractVehicle vehicle = rental.getValue();
+            if (!contains(vehicle)) throw new UnknownVehicleException(vehicle);
+            if (!seen.add(vehicle)) throw new IllegalArgumentException("Vehicle appears twice in the batch: " + vehicle);
+            if (renters.containsKey(vehicle)) throw new IllegalStateException("Vehicle already rented");
+            if (aVehicleIsRentedBy(client)) throw new IllegalStateException("Client already has a rented vehicle");
+            batchClients[i] = client;
+            batchVehicles[i] = vehicle;
+            i++;
+        }
+
+        double[] prices = new double[size];
+        int applied = 0;
+        try {
+            for (; applied < size; applied++) {
+                AbstractVehicle vehicle = batchVehicles[applied];
+                Rental rental = new Rental(batchClients[applied], vehicle.dailyRentalPrice());
+                RentalResult result = claim(rental, vehicle);
+                if (!result.isRented()) throw result.toException(vehicle);
+                prices[applied] = rental.dailyPrice();
+            }
+        } catch (RuntimeException e) {
+            for (int j = 0; j < applied; j++) {
+                cancelRental(batchClients[j], batchVehicles[j], e);
+            }
+            if (applied > 0) revert(e, AgencyListener::operationCompleted);
+            throw e;
+        }
+        operationCompleted();
+        return prices;
+    }
+
+    /**
+     * Annule, sous le verrou du véhicule, une location d'un lot qui a échoué et notifie son annulation ;
+     * sans effet si le client a rendu le véhicule entre-temps
+     */
+    private void cancelRental(Client client, AbstractVehicle vehicle, RuntimeException failure) {
+        calendar.locked(vehicle, () -> {
+            Rental rental = renters.get(vehicle);
+            if (rental == null || !rental.client().equals(client)) return null;
+            revert(failure, l -> l.vehicleReturned(client, vehicle));
+            rentedVehicles.remove(clients.idOf(client), vehicle);
+            return release(vehicle, client);
+        });
+    }
+
+    /**
+     * Rend les véhicules loués par un lot de clients, tout ou rien : le lot entier est validé en une passe,
+     * puis chaque retour est appliqué ; si l'un échoue (retour concurrent), ceux déjà appliqués sont annulés.
+     * Chaque retour est notifié quand il est appliqué, et son annulation par la notification inverse. Seul un retour
+     * dont le véhicule a été reloué ou retiré, ou dont le client a loué un autre véhicule entre-temps, reste acquis.
+     * @param batch les clients
+     * @throws IllegalStateException si un client ne loue aucun véhicule
+     * @throws IllegalArgumentException si un même client apparaît deux fois dans le lot
+     */
+    public void returnVehicles(Collection<Client> batch) {
+        int size = batch.size();
+        int[] ids = new int[size];
+        Client[] batchClients = new Client[size];
+        Set<Client> seen = new HashSet<>(size * 2);
+        int i = 0;
+        for (Client client : batch) {
+            int id = clients.idOf(client);
+            if (id < 0 || rentedVehicles.get(id) == null) throw new IllegalStateException("Client has no rented vehicle");
+            if (!seen.add(client)) throw new IllegalArgumentException("Client appears twice in the batch: " + client);
+            ids[i] = id;
+            batchClients[i] = client;
+            i++;
+        }
+
+        AbstractVehicle[] returned = new AbstractVehicle[size];
+        Rental[] ended = new Rental[size];
+        int applied = 0;
+        try {
+            for (; applied < size; applied++) {
+                returned[applied] = rentedVehicles.get(ids[applied]);
+                ended[applied] = giveBack(ids[applied], batchClients[applied], returned[applied]);
+            }
+        } catch (RuntimeException e) {
+            for (int j = 0; j < applied; j++) {
+                restoreRental(ids[j], returned[j], ended[j], e);
+            }
+            if (applied > 0) revert(e, AgencyListener::operationCompleted);
+            throw e;
+        }
+        operationCompleted();
+    }
+
+    /**
+     * Rétablit, sous le verrou du véhicule, la location d'un lot de retours qui a échoué et notifie son
+     * rétablissement ; sans effet si le véhicule a été reloué ou retiré, ou si le client loue un autre véhicule
+     */
+    private void restoreRental(int id, AbstractVehicle vehicle, Rental rental, RuntimeException failure) {
+        calendar.locked(vehicle, () -> {
+            if (!contains(vehicle) || renters.containsKey(vehicle) || rentedVehicles.putIfAbsent(id, vehicle) != null) {
+                return null;
+            }
+            Client client = rental.client();
+            revert(failure, l -> l.vehicleRented(client, vehicle));
+            renters.put(vehicle, rental);
+            statistics.vehicleRented(vehicle, rental.dailyPrice());
+            return rental;
+        });
+    }
+
     /**
      * Retourne true si le client loue un véhicule, false sinon
      * @param client le client
      * @return true si le client loue un véhicule, false sinon
      */
     public boolean aVehicleIsRentedBy(Client client) {
-        return rentedVehicles.containsKey(client);
+        int id = clients.idOf(client);
+        return id >= 0 && rentedVehicles.get(id) != null;
     }
 
     /**
-     * Retourne true si le véhicule est loué, false sinon
+     * Retourne true si le véhicule est loué, false sinon (en temps constant grâce à l'index inverse)
      * @param vehicle le véhicule
      * @return true si le véhicule est loué, false sinon
      */
     public boolean vehicleIsRented(AbstractVehicle vehicle) {
-        return rentedVehicles.containsValue(vehicle);
+        return renters.containsKey(vehicle);
     }
 
+    /**
+     * Rend le véhicule loué par le client
+     * @param client le client
+     * @throws IllegalStateException si le client ne loue aucun véhicule
+     */
     public void returnVehicle(Client client) {
-        if (!aVehicleIsRentedBy(client)) throw new IllegalStateException("Client has no rented vehicle");
-        rentedVehicles.remove(client);
+        AgencyMetrics metrics = this.metrics;
+        if (!metrics.isEnabled()) {
+            giveBack(client);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            giveBack(client);
+            metrics.returnLatency.record(System.nanoTime() - start);
+            metrics.returns.increment();
+        } catch (RuntimeException e) {
+            metrics.rejected(e);
+            throw e;
+        }
+    }
+
+    private void giveBack(Client client) {
+        int id = clients.idOf(client);
+        giveBack(id, client, id < 0 ? null : rentedVehicles.get(id));
+        operationCompleted();
+    }
+
+    /**
+     * Notifie puis applique le retour du véhicule loué par le client, sous le verrou du véhicule :
+     * un retour concurrent du même client ou un retrait du véhicule passe avant ou après, jamais entre.
+     * Si un observateur refuse le retour, il n'est pas appliqué.
+     * @return la location terminée
+     * @throws IllegalStateException si le client ne loue plus ce véhicule
+     */
+    private Rental giveBack(int id, Client client, AbstractVehicle vehicle) {
+        if (vehicle == null) throw new IllegalStateException("Client has no rented vehicle");
+        return calendar.locked(vehicle, () -> {
+            if (!vehicle.equals(rentedVehicles.get(id))) throw new IllegalStateException("Client has no rented vehicle");
+            if (!listeners.isEmpty()) notifyListeners(l -> l.vehicleReturned(client, vehicle), l -> l.vehicleRented(client, vehicle));
+            rentedVehicles.remove(id, vehicle);
+            return release(vehicle, client);
+        });
     }
 
+    /**
+     * Retourne une vue non modifiable et à jour des véhicules loués, sans copie
+     * @return les véhicules actuellement loués
+     */
     public Collection<AbstractVehicle> allRentedVehicles() {
-        return rentedVehicles.values();
+        return Collections.unmodifiableSet(renters.keySet());
+    }
+
+    /**
+     * Retourne les agrégats courants de l'agence (flotte, locations, chiffre d'affaires journalier),
+     * tenus à jour en temps constant à chaque modification
+     * @return les agrégats, en lecture seule
+     */
+    public AgencyStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Active la mesure des opérations (compteurs et latences), à partir de compteurs à zéro ;
+     * sans effet si elle est déjà active
+     * @return les métriques actives
+     */
+    public synchronized AgencyMetrics enableMetrics() {
+        if (!metrics.isEnabled()) metrics = AgencyMetrics.enabled();
+        return metrics;
+    }
+
+    /**
+     * Désactive la mesure des opérations ; {@link #metrics()} retourne ensuite {@link AgencyMetrics#DISABLED}.
+     * Les métriques collectées jusque-là restent lisibles par l'instance retournée, qui n'évolue plus
+     * (aux opérations en cours près) ; une réactivation repart de compteurs à zéro.
+     * @return les métriques collectées jusque-là, ou {@link AgencyMetrics#DISABLED} si la mesure était inactive
+     */
+    public synchronized AgencyMetrics disableMetrics() {
+        AgencyMetrics previous = metrics;
+        metrics = AgencyMetrics.DISABLED;
+        return previous;
+    }
+
+    /**
+     * Retourne les métriques courantes de l'agence
+     * @return les métriques, ou {@link AgencyMetrics#DISABLED} si la mesure est désactivée
+     */
+    public AgencyMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Retourne le registre des clients de l'agence
+     * @return le registre des clients
+     */
+    public ClientRegistry getClients() {
+        return clients;
+    }
+
+    /**
+     * Retourne une copie des locations en cours (client vers véhicule)
+     * @return les locations en cours
+     */
+    Map<Client, AbstractVehicle> rentals() {
+        Map<Client, AbstractVehicle> rentals = new HashMap<>();
+        int capacity = rentedVehicles.capacity();
+        for (int id = 0; id < capacity; id++) {
+            AbstractVehicle vehicle = rentedVehicles.get(id);
+            if (vehicle != null) rentals.put(clients.client(id), vehicle);
+        }
+        return rentals;
+    }
+
+    /**
+     * Rejoue une location lue dans un journal, sans contrôle ni notification : elle remplace
+     * la location en cours du client et celle du véhicule, pour que le rejeu soit idempotent
+     * @param client le client
+     * @param vehicle le véhicule
+     */
+    void replayRent(Client client, AbstractVehicle vehicle) {
+        AbstractVehicle previousVehicle = rentedVehicles.put(clients.register(client), vehicle);
+        if (previousVehicle != null && !previousVehicle.equals(vehicle)) release(previousVehicle, client);
+        Rental rental = new Rental(client, vehicle.dailyRentalPrice());
+        Rental previous = renters.put(vehicle, rental);
+        if (previous != null) {
+            statistics.vehicleReturned(vehicle, previous.dailyPrice());
+            if (!previous.client().equals(client)) rentedVehicles.remove(clients.idOf(previous.client()), vehicle);
+        }
+        statistics.vehicleRented(vehicle, rental.dailyPrice());
+    }
+
+    /**
+     * Rejoue un retour lu dans un journal : sans effet si la location a déjà été remplacée
+     * @param client le client
+     * @param vehicle le véhicule
+     */
+    void replayReturn(Client client, AbstractVehicle vehicle) {
+        int id = clients.idOf(client);
+        if (id >= 0) rentedVehicles.remove(id, vehicle);
+        release(vehicle, client);
     }
 }
@@ -0,0 +1,537 @@
+package agency;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'écriture anticipée d'une agence : ajouts, retraits, locations, retours, réservations datées
+ * et annulations sont ajoutés à la fin
+ * d'un fichier, dans un répertoire qui contient aussi le dernier instantané ({@link SnapshotStore}).
+ * <p>
+ * Les enregistrements sont accumulés en mémoire puis écrits et forcés sur disque par un thread dédié,
+ * en un seul {@code force} pour tous ceux arrivés pendant le précédent (validation groupée). En mode
+ * {@link Durability#SYNC}, chaque opération de l'agence rend la main une fois son enregistrement durable ;
+ * en mode {@link Durability#ASYNC}, elle n'attend pas et une panne peut perdre les dernières opérations.
+ * <p>
+ * Chaque enregistrement est encodé et ajouté au tampon avant que l'opération ne soit appliquée : si le journal
+ * est en échec ou fermé ({@link UncheckedIOException}), ou ne sait pas encoder le véhicule
+ * ({@link IllegalArgumentException}), l'opération est refusée et l'agence reste inchangée (voir {@link AgencyListener}). En mode {@link Durability#SYNC}, une écriture sur disque qui échoue après
+ * l'ajout au tampon fait lever une {@link UncheckedIOException} à l'opération, qui reste appliquée en mémoire
+ * sans être durable ; le journal est alors en échec et refuse toutes les opérations suivantes, qui laissent
+ * l'agence inchangée : l'état en mémoire ne s'écarte du journal que des opérations en cours lors de la panne.
+ * <p>
+ * Format d'un enregistrement (entiers big-endian) : longueur, CRC32 du contenu, puis type, véhicule
+ * (type, marque, modèle, année, places ou cylindrée) et, pour les locations et les retours, le client ;
+ * les réservations et les annulations portent en plus leurs premier et dernier jours.
+ * Un enregistrement incomplet ou corrompu en fin de fichier (écriture interrompue) est ignoré au rejeu.
+ * <p>
+ * Les enregistrements sont ajoutés dans la section critique de chaque modification (voir {@link AgencyListener}) :
+ * le journal suit l'ordre dans lequel l'agence applique les modifications de chaque véhicule et de chaque client,
+ * et son rejeu redonne l'état de l'agence.
+ * <p>
+ * Au démarrage, {@link #open(Path, Durability)} recharge l'instantané puis rejoue le journal. Le compactage
+ * ({@link #compact()}) bascule sur un nouveau journal, puis écrit l'instantané de l'état au point de bascule
+ * et supprime l'ancien journal. Cet instantané est reconstruit à partir du précédent et de l'ancien journal,
+ * sans lire l'agence, qui reste utilisable : il couvre exactement l'ancien journal, et le nouveau commence
+ * là où il s'arrête. Le rejeu est idempotent, ce qui permet de reprendre un compactage interrompu.
+ */
+public final class RentalJournal implements AgencyListener, Closeable {
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    static final String JOURNAL_FILE = "journal.log";
+    static final String OLD_JOURNAL_FILE = "journal.log.old";
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte RENT = 3;
+    private static final byte RETURN = 4;
+    private static final byte BOOK = 5;
+    private static final byte CANCEL = 6;
+    private static final byte CAR = 0;
+    private static final byte MOTORBIKE = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Garantie de durabilité des opérations de l'agence
+     */
+    public enum Durability {
+        /** chaque opération attend que son enregistrement soit forcé sur disque */
+        SYNC,
+        /** les opérations n'attendent pas l'écriture du journal */
+        ASYNC
+    }
+
+    private final RentalAgency agency;
+    private final Path directory;
+    private final Durability durability;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final ThreadLocal<long[]> lastSequence = ThreadLocal.withInitial(() -> new long[1]);
+    private final Object compaction = new Object();
+    private final Thread flusher;
+    private FileChannel channel;
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean flushInProgress;
+    private IOException failure;
+    private boolean closed;
+    private ScheduledExecutorService compactor;
+
+    private RentalJournal(RentalAgency agency, Path directory, Durability durability, FileChannel channel) {
+        this.agency = agency;
+        this.directory = directory;
+        this.durability = durability;
+        this.channel = channel;
+        flusher = new Thread(this::flushLoop, "rental-journal-" + directory.getFileName());
+        flusher.setDaemon(true);
+    }
+
+    /**
+     * Reconstruit l'agence du répertoire (dernier instantané puis rejeu du journal) et journalise ses
+     * modifications suivantes
+     * @param directory le répertoire du journal, créé s'il n'existe pas
+     * @param durability la garantie de durabilité des opérations
+     * @return le journal, attaché à l'agence reconstruite
+     * @throws IOException si le répertoire ne peut pas être lu ou si l'instantané est invalide
+     */
+    public static RentalJournal open(Path directory, Durability durability) throws IOException {
+        Files.createDirectories(directory);
+        RentalAgency agency = recover(directory);
+        Path journal = directory.resolve(JOURNAL_FILE);
+        FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            // un enregistrement interrompu en fin de fichier est écrasé par les suivants
+            channel.truncate(replay(journal, agency, false));
+            channel.position(channel.size());
+            Path oldJournal = directory.resolve(OLD_JOURNAL_FILE);
+            if (Files.exists(oldJournal)) {
+                // compactage interrompu : l'ancien journal n'est supprimé qu'une fois couvert par un instantané
+                writeSnapshot(agency, directory);
+                Files.delete(oldJournal);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        RentalJournal rentalJournal = new RentalJournal(agency, directory, durability, channel);
+        rentalJournal.flusher.start();
+        agency.addListener(rentalJournal);
+        return rentalJournal;
+    }
+
+    /**
+     * Reconstruit l'agence d'un répertoire de journal, sans la journaliser : dernier instantané,
+     * puis rejeu de l'ancien journal (compactage interrompu) et du journal courant
+     * @param directory le répertoire du journal
+     * @return l'agence reconstruite, vide si le répertoire ne contient rien
+     * @throws IOException si le répertoire ne peut pas être lu ou si l'instantané est invalide
+     */
+    public static RentalAgency recover(Path directory) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        RentalAgency agency = Files.exists(snapshot) ? SnapshotStore.read(snapshot) : new RentalAgency();
+        replay(directory.resolve(OLD_JOURNAL_FILE), agency, true);
+        replay(directory.resolve(JOURNAL_FILE), agency, true);
+        return agency;
+    }
+
+    /**
+     * Rejoue les enregistrements valides du journal sur l'agence
+     * @return la longueur de la partie valide du journal
+     */
+    private static long replay(Path journal, RentalAgency agency, boolean apply) throws IOException {
+        if (!Files.exists(journal)) return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal));
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) return start;
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) return start;
+            ByteBuffer record = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            if (apply) apply(record, agency);
+        }
+        return buffer.position();
+    }
+
+    private static void apply(ByteBuffer record, RentalAgency agency) throws IOException {
+        byte type = record.get();
+        AbstractVehicle vehicle = getVehicle(record);
+        switch (type) {
+            case ADD -> agency.add(vehicle);
+            case REMOVE -> {
+                if (agency.contains(vehicle)) agency.remove(vehicle);
+            }
+            case RENT, RETURN, BOOK, CANCEL -> {
+                Client client = new Client(getString(record), getString(record), record.getInt());
+                switch (type) {
+                    case RENT -> agency.replayRent(client, vehicle);
+                    case RETURN -> agency.replayReturn(client, vehicle);
+                    default -> {
+                        Booking booking = new Booking(client, vehicle,
+                                LocalDate.ofEpochDay(record.getLong()), LocalDate.ofEpochDay(record.getLong()));
+                        if (type == BOOK) {
+                            agency.replayBook(booking);
+                        } else {
+                            agency.replayCancel(booking);
+                        }
+                    }
+                }
+            }
+            default -> throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static AbstractVehicle getVehicle(ByteBuffer record) throws IOException {
+        byte type = record.get();
+        String brand = getString(record);
+        String model = getString(record);
+        int year = record.getInt();
+        int spec = record.getInt();
+        return switch (type) {
+            case CAR -> new Car(brand, model, year, spec);
+            case MOTORBIKE -> new Motorbike(brand, model, year, spec);
+            default -> throw new IOException("Unknown vehicle type: " + type);
+        };
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retourne l'agence journalisée
+     * @return l'agence
+     */
+    public RentalAgency agency() {
+        return agency;
+    }
+
+    @Override
+    public void vehicleAdded(AbstractVehicle vehicle) {
+        append(ADD, vehicle, null, null);
+    }
+
+    @Override
+    public void vehicleRemoved(AbstractVehicle vehicle) {
+        append(REMOVE, vehicle, null, null);
+    }
+
+    @Override
+    public void vehicleRented(Client client, AbstractVehicle vehicle) {
+        append(RENT, vehicle, client, null);
+    }
+
+    @Override
+    public void vehicleReturned(Client client, AbstractVehicle vehicle) {
+        append(RETURN, vehicle, client, null);
+    }
+
+    @Override
+    public void vehicleBooked(Booking booking) {
+        append(BOOK, booking.vehicle(), booking.client(), booking);
+    }
+
+    @Override
+    public void bookingCancelled(Booking booking) {
+        append(CANCEL, booking.vehicle(), booking.client(), booking);
+    }
+
+    /**
+     * En mode {@link Durability#SYNC}, attend que le dernier enregistrement de ce thread soit durable
+     * @throws UncheckedIOException si l'écriture du journal a échoué : l'opération reste appliquée en mémoire
+     *                              mais n'est pas durable
+     */
+    @Override
+    public void operationCompleted() {
+        if (durability == Durability.ASYNC) return;
+        long[] sequence = lastSequence.get();
+        if (sequence[0] != 0) {
+            awaitDurable(sequence[0]);
+            sequence[0] = 0;
+        }
+    }
+
+    private void append(byte type, AbstractVehicle vehicle, Client client, Booking booking) {
+        byte spec;
+        int value;
+        if (vehicle instanceof Car car) {
+            spec = CAR;
+            value = car.getNumberOfSeats();
+        } else if (vehicle instanceof Motorbike motorbike) {
+            spec = MOTORBIKE;
+            value = motorbike.getCylinderCapacity();
+        } else {
+            throw new IllegalArgumentException("Unsupported vehicle type: " + vehicle.getClass().getName());
+        }
+        byte[] brand = bytes(vehicle.getBrand());
+        byte[] model = bytes(vehicle.getModel());
+        byte[] name = client == null ? null : bytes(client.getName());
+        byte[] surname = client == null ? null : bytes(client.getSurname());
+        int length = 1 + 1 + size(brand) + size(model) + 8
+                + (client == null ? 0 : size(name) + size(surname) + 4) + (booking == null ? 0 : 16);
+
+        lock.lock();
+        try {
+            if (failure != null) throw new UncheckedIOException("Rental journal write failed", failure);
+            if (closed) throw new UncheckedIOException("Rental journal is closed", new ClosedChannelException());
+            if (active.remaining() < HEADER_SIZE + length) {
+                int capacity = Math.max(active.capacity() * 2, active.position() + HEADER_SIZE + length);
+                ByteBuffer larger = ByteBuffer.allocate(capacity);
+                active.flip();
+                active = larger.put(active);
+            }
+            int start = active.position();
+            active.putInt(length).putInt(0).put(type).put(spec);
+            putBytes(brand);
+            putBytes(model);
+            active.putInt(vehicle.getProductionYear()).putInt(value);
+            if (client != null) {
+                putBytes(name);
+                putBytes(surname);
+                active.putInt(client.getBirthYear());
+            }
+            if (booking != null) {
+                active.putLong(booking.start().toEpochDay()).putLong(booking.end().toEpochDay());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(active.array(), start + HEADER_SIZE, length);
+            active.putInt(start + 4, (int) crc.getValue());
+            lastSequence.get()[0] = ++appendedSequence;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    /**
+     * Écrit une chaîne encodée précédée de sa longueur, -1 pour null
+     */
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            active.putInt(-1);
+        } else {
+            active.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            if (durableSequence < sequence) throw new UncheckedIOException("Rental journal write failed", failure);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Boucle du thread d'écriture : échange les tampons, écrit le lot et le force sur disque en une fois
+     */
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel target;
+            long sequence;
+            lock.lock();
+            try {
+                while (active.position() == 0 && !closed) {
+                    pending.awaitUninterruptibly();
+                }
+                if (active.position() == 0) return;
+                batch = active;
+                active = flushing;
+                flushing = batch;
+                target = channel;
+                sequence = appendedSequence;
+                flushInProgress = true;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    target.write(batch);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = sequence;
+                }
+                flushInProgress = false;
+                durable.signalAll();
+                if (error != null) return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Attend que tous les enregistrements déjà ajoutés soient durables
+     * @throws IOException si l'écriture du journal a échoué
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            long sequence = appendedSequence;
+            while (durableSequence < sequence && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            if (failure != null) throw failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compacte le journal : bascule sur un journal vide, écrit l'instantané de l'état au point de bascule
+     * (le précédent instantané suivi de l'ancien journal, rejoués sur une copie de l'agence) puis supprime
+     * l'ancien journal. L'agence n'est pas lue et reste utilisable pendant la reconstruction et l'écriture
+     * de l'instantané ; seules les opérations journalisées pendant la bascule sont brièvement retenues.
+     * @throws IOException si la bascule ou l'écriture de l'instantané échoue
+     */
+    public void compact() throws IOException {
+        synchronized (compaction) {
+            Path journal = directory.resolve(JOURNAL_FILE);
+            Path oldJournal = directory.resolve(OLD_JOURNAL_FILE);
+            lock.lock();
+            try {
+                if (closed) throw new IllegalStateException("Rental journal is closed");
+                long sequence = appendedSequence;
+                while (durableSequence < sequence && failure == null) {
+                    durable.awaitUninterruptibly();
+                }
+                // le thread d'écriture a pu prendre un nouveau lot pendant l'attente : l'ancien fichier
+                // n'est fermé qu'une fois ce lot écrit, les lots suivants iront dans le nouveau
+                while (flushInProgress && failure == null) {
+                    durable.awaitUninterruptibly();
+                }
+                if (failure != null) throw failure;
+                channel.close();
+                Files.move(journal, oldJournal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(journal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                failure = e;
+                durable.signalAll();
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+            Path snapshot = directory.resolve(SNAPSHOT_FILE);
+            RentalAgency compacted = Files.exists(snapshot) ? SnapshotStore.read(snapshot) : new RentalAgency();
+            replay(oldJournal, compacted, true);
+            writeSnapshot(compacted, directory);
+            Files.delete(oldJournal);
+        }
+    }
+
+    private static void writeSnapshot(RentalAgency agency, Path directory) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        SnapshotStore.write(agency, temporary);
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Compacte le journal périodiquement, sur un thread dédié ; un compactage en échec arrête les suivants
+     * @param period la période de compactage
+     * @throws IllegalStateException si un compactage périodique est déjà programmé
+     */
+    public void compactEvery(Duration period) {
+        lock.lock();
+        try {
+            if (compactor != null) throw new IllegalStateException("Periodic compaction already scheduled");
+            compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "rental-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } finally {
+            lock.unlock();
+        }
+        long millis = period.toMillis();
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Détache le journal de l'agence, écrit les enregistrements en attente et ferme le fichier
+     * @throws IOException si l'écriture du journal a échoué
+     */
+    @Override
+    public void close() throws IOException {
+        agency.removeListener(this);
+        ScheduledExecutorService scheduled;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            scheduled = compactor;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (scheduled != null) scheduled.shutdownNow();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the rental journal");
+        }
+        synchronized (compaction) {
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+}
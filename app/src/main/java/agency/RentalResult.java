@@ -0,0 +1,38 @@
+package agency;
+
+/**
+ * Issue d'une tentative de location par {@link RentalAgency#tryRent(Client, AbstractVehicle)}
+ */
+public enum RentalResult {
+    /** le véhicule a été loué */
+    RENTED,
+    /** le véhicule n'est pas présent dans l'agence */
+    UNKNOWN_VEHICLE,
+    /** le véhicule est déjà loué */
+    VEHICLE_ALREADY_RENTED,
+    /** le client loue déjà un véhicule */
+    CLIENT_ALREADY_RENTING,
+    /** le véhicule est réservé pour aujourd'hui */
+    VEHICLE_BOOKED;
+
+    /**
+     * Retourne true si la location a eu lieu
+     * @return true pour {@link #RENTED}
+     */
+    public boolean isRented() {
+        return this == RENTED;
+    }
+
+    /**
+     * Retourne l'exception levée par {@link RentalAgency#rentVehicle(Client, AbstractVehicle)} pour ce refus
+     */
+    RuntimeException toException(AbstractVehicle vehicle) {
+        return switch (this) {
+            case UNKNOWN_VEHICLE -> new UnknownVehicleException(vehicle);
+            case VEHICLE_ALREADY_RENTED -> new IllegalStateException("Vehicle already rented");
+            case CLIENT_ALREADY_RENTING -> new IllegalStateException("Client already has a rented vehicle");
+            case VEHICLE_BOOKED -> new IllegalStateException("Vehicle booked for today");
+            case RENTED -> throw new IllegalArgumentException("Not a rejection");
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package agency;
+
+import util.TimeProvider;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Moteur de tarification à tables de règles : le prix de base (formules des voitures et des motos) est
+ * multiplié par un coefficient de marque, de type de véhicule et de saison (mois courant).
+ * <p>
+ * Les tables sont lues au démarrage depuis un fichier de propriétés, par exemple :
+ * <pre>
+ * brand.Ferrari=1.5
+ * type.motorbike=0.9
+ * month.7=1.2
+ * </pre>
+ * Un coefficient absent vaut 1 ; le moteur {@link #DEFAULT} n'a aucune règle. Comme tout {@link PricingEngine},
+ * ce moteur ne change pas les prix pratiqués par l'agence.
+ */
+public class RuleTablePricingEngine implements PricingEngine {
+    public static final RuleTablePricingEngine DEFAULT = new RuleTablePricingEngine(Map.of(), 1, 1, new double[12]);
+
+    private final Map<String, Double> brandMultipliers;
+    private final double carMultiplier;
+    private final double motorbikeMultiplier;
+    private final double[] monthMultipliers;
+    private final Clock clock;
+
+    private RuleTablePricingEngine(Map<String, Double> brandMultipliers, double carMultiplier,
+                                   double motorbikeMultiplier, double[] monthMultipliers) {
+        this(brandMultipliers, carMultiplier, motorbikeMultiplier, monthMultipliers, Clock.systemDefaultZone());
+    }
+
+    private RuleTablePricingEngine(Map<String, Double> brandMultipliers, double carMultiplier,
+                                   double motorbikeMultiplier, double[] monthMultipliers, Clock clock) {
+        this.brandMultipliers = Collections.unmodifiableMap(new HashMap<>(brandMultipliers));
+        this.carMultiplier = carMultiplier;
+        this.motorbikeMultiplier = motorbikeMultiplier;
+        this.monthMultipliers = monthMultipliers.clone();
+        for (int i = 0; i < this.monthMultipliers.length; i++) {
+            if (this.monthMultipliers[i] == 0) this.monthMultipliers[i] = 1;
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Construit un moteur à partir de tables de règles
+     * @param rules les règles (clés brand.&lt;marque&gt;, type.car, type.motorbike, month.&lt;1-12&gt;)
+     * @return le moteur de tarification
+     * @throws IllegalArgumentException si une règle est inconnue ou si un coefficient n'est pas un nombre positif
+     */
+    public static RuleTablePricingEngine fromRules(Properties rules) {
+        Map<String, Double> brands = new HashMap<>();
+        double car = 1;
+        double motorbike = 1;
+        double[] months = new double[12];
+        for (String key : rules.stringPropertyNames()) {
+            double multiplier = parseMultiplier(key, rules.getProperty(key));
+            if (key.startsWith("brand.")) {
+                brands.put(key.substring("brand.".length()), multiplier);
+            } else if (key.equals("type.car")) {
+                car = multiplier;
+            } else if (key.equals("type.motorbike")) {
+                motorbike = multiplier;
+            } else if (key.startsWith("month.")) {
+                int month = Integer.parseInt(key.substring("month.".length()));
+                if (month < 1 || month > 12) throw new IllegalArgumentException("Invalid month rule: " + key);
+                months[month - 1] = multiplier;
+            } else {
+                throw new IllegalArgumentException("Unknown pricing rule: " + key);
+            }
+        }
+        return new RuleTablePricingEngine(brands, car, motorbike, months);
+    }
+
+    /**
+     * Charge un moteur depuis un fichier de propriétés
+     * @param rules le chemin du fichier de règles
+     * @return le moteur de tarification
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public static RuleTablePricingEngine load(Path rules) throws IOException {
+        try (Reader reader = Files.newBufferedReader(rules)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            return fromRules(properties);
+        }
+    }
+
+    private static double parseMultiplier(String key, String value) {
+        try {
+            double multiplier = Double.parseDouble(value.trim());
+            if (multiplier > 0) return multiplier;
+        } catch (NumberFormatException ignored) {
+            // signalé ci-dessous
+        }
+        throw new IllegalArgumentException("Invalid multiplier for " + key + ": " + value);
+    }
+
+    /**
+     * Retourne le même moteur lisant le mois courant sur une autre horloge (pour les tests)
+     * @param clock l'horloge
+     * @return le moteur de tarification
+     */
+    public RuleTablePricingEngine withClock(Clock clock) {
+        return new RuleTablePricingEngine(brandMultipliers, carMultiplier, motorbikeMultiplier, monthMultipliers, clock);
+    }
+
+    @Override
+    public void computePrices(List<? extends AbstractVehicle> vehicles, double[] prices) {
+        // l'année et le mois sont lus une fois pour le lot : le prix d'une voiture ne dépend que de son
+        // année de production (neuve ou d'occasion) et de ses places, comme sur les colonnes
+        int currentYear = TimeProvider.currentYearValue();
+        double season = seasonMultiplier();
+        int row = 0;
+        for (AbstractVehicle vehicle : vehicles) {
+            double price;
+            double type;
+            if (vehicle.getClass() == Car.class) {
+                Car car = (Car) vehicle;
+                price = Car.priceFor(car.getProductionYear(), car.getNumberOfSeats(), currentYear);
+                type = carMultiplier;
+            } else {
+                // une moto garde son prix calculé à la construction ; une sous-classe peut redéfinir le sien
+                price = vehicle.dailyRentalPrice();
+                type = vehicle instanceof Motorbike ? motorbikeMultiplier : vehicle instanceof Car ? carMultiplier : 1;
+            }
+            double brand = brandMultipliers.isEmpty() ? 1 : brandMultipliers.getOrDefault(vehicle.getBrand(), 1.0);
+            prices[row++] = price * (brand * season * type);
+        }
+    }
+
+    @Override
+    public void computePrices(ColumnarFleet fleet, double[] prices) {
+        fleet.basePrices(prices);
+        double season = seasonMultiplier();
+        double[] brands = new double[fleet.brandCount()];
+        for (int id = 0; id < brands.length; id++) {
+            brands[id] = brandMultipliers.getOrDefault(fleet.brand(id), 1.0) * season;
+        }
+        double car = carMultiplier;
+        double motorbike = motorbikeMultiplier;
+        for (int row = 0; row < fleet.size(); row++) {
+            prices[row] *= brands[fleet.brandId(row)] * (fleet.isCar(row) ? car : motorbike);
+        }
+    }
+
+    private double seasonMultiplier() {
+        return monthMultipliers[LocalDate.now(clock).getMonthValue() - 1];
+    }
+}
@@ -0,0 +1,58 @@
+package agency;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Règle de répartition des véhicules entre les partitions d'un {@link AgencyCluster}.
+ * <p>
+ * La partition d'un véhicule ne doit dépendre que du véhicule : le cluster la recalcule à chaque opération
+ * pour router les ajouts, retraits et locations.
+ */
+@FunctionalInterface
+public interface ShardingStrategy {
+    /**
+     * Retourne la partition d'un véhicule
+     * @param vehicle le véhicule
+     * @param shardCount le nombre de partitions
+     * @return l'indice de la partition, entre 0 et shardCount - 1
+     */
+    int shardOf(AbstractVehicle vehicle, int shardCount);
+
+    /**
+     * Répartit les véhicules selon le hachage de leur marque : tous les véhicules d'une marque sont
+     * dans la même partition
+     * @return la stratégie
+     */
+    static ShardingStrategy byBrand() {
+        return byKey(AbstractVehicle::getBrand);
+    }
+
+    /**
+     * Répartit les véhicules selon le hachage d'une clé calculée
+     * @param key la fonction de clé (la clé peut être null)
+     * @return la stratégie
+     */
+    static ShardingStrategy byKey(Function<? super AbstractVehicle, ?> key) {
+        Objects.requireNonNull(key);
+        return (vehicle, shardCount) -> Math.floorMod(Objects.hashCode(key.apply(vehicle)), shardCount);
+    }
+
+    /**
+     * Répartit les véhicules selon leur région, chaque région étant affectée à une partition
+     * @param region la fonction donnant la région d'un véhicule
+     * @param shards la partition de chaque région
+     * @return la stratégie
+     * @throws IllegalArgumentException à l'usage, si la région d'un véhicule n'a pas de partition
+     */
+    static ShardingStrategy byRegion(Function<? super AbstractVehicle, String> region, Map<String, Integer> shards) {
+        Map<String, Integer> regions = Map.copyOf(shards);
+        return (vehicle, shardCount) -> {
+            String name = region.apply(vehicle);
+            Integer shard = name == null ? null : regions.get(name);
+            if (shard == null) throw new IllegalArgumentException("No shard for region: " + name);
+            return shard;
+        };
+    }
+}
@@ -0,0 +1,239 @@
+package agency;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Instantanés binaires compacts d'une agence : flotte, locations en cours et réservations datées.
+ * <p>
+ * Format (entiers big-endian) :
+ * <pre>
+ * en-tête      : magic "RAS1", version
+ * chaînes      : nombre, puis pour chacune longueur et octets UTF-8 (marques, modèles, noms des clients) ;
+ *                une chaîne absente (null) est désignée par l'indice -1 et n'est pas écrite
+ * véhicules    : nombre, puis 17 octets par véhicule : type (0 voiture, 1 moto), marque, modèle, année, places ou cylindrée
+ * locations    : nombre, puis 16 octets par location : prénom, nom, année de naissance, rang du véhicule
+ * réservations : nombre, puis 32 octets par réservation datée : prénom, nom, année de naissance, rang du véhicule,
+ *                premier et dernier jours (jours depuis l'époque, sur 8 octets) ; absentes de la version 1
+ * </pre>
+ * L'écriture passe par un tampon réutilisé sur un {@link FileChannel} ; la lecture projette le fichier en mémoire.
+ * L'instantané doit être pris sur une agence au repos : flotte et locations sont copiées l'une après l'autre.
+ */
+public final class SnapshotStore {
+    static final int MAGIC = 0x52415331;
+    static final int VERSION = 2;
+    private static final byte CAR = 0;
+    private static final byte MOTORBIKE = 1;
+    private static final int NULL_STRING = -1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private SnapshotStore() {
+    }
+
+    /**
+     * Écrit l'instantané de l'agence dans le fichier, remplacé s'il existe
+     * @param agency l'agence
+     * @param file le fichier
+     * @throws IOException si l'écriture échoue
+     * @throws IllegalArgumentException si la flotte contient un véhicule ni voiture ni moto
+     */
+    public static void write(RentalAgency agency, Path file) throws IOException {
+        List<AbstractVehicle> vehicles = agency.getVehicles();
+        Map<Client, AbstractVehicle> rentals = agency.rentals();
+        List<Booking> bookings = agency.allBookings();
+
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        // seuls les véhicules loués ont besoin de leur rang
+        Map<AbstractVehicle, Integer> ranks = new HashMap<>();
+        for (AbstractVehicle rented : rentals.values()) {
+            ranks.put(rented, -1);
+        }
+        for (Booking booking : bookings) {
+            ranks.put(booking.vehicle(), -1);
+        }
+        int rank = 0;
+        for (AbstractVehicle vehicle : vehicles) {
+            if (!(vehicle instanceof Car) && !(vehicle instanceof Motorbike)) {
+                throw new IllegalArgumentException("Unsupported vehicle type: " + vehicle.getClass().getName());
+            }
+            intern(vehicle.getBrand(), strings, table);
+            intern(vehicle.getModel(), strings, table);
+            if (!ranks.isEmpty()) ranks.replace(vehicle, rank);
+            rank++;
+        }
+        // une location dont le véhicule a été retiré de la flotte n'est pas conservée
+        rentals.values().removeIf(rented -> ranks.get(rented) < 0);
+        bookings.removeIf(booking -> ranks.get(booking.vehicle()) < 0);
+        for (Client client : rentals.keySet()) {
+            intern(client.getName(), strings, table);
+            intern(client.getSurname(), strings, table);
+        }
+        for (Booking booking : bookings) {
+            intern(booking.client().getName(), strings, table);
+            intern(booking.client().getSurname(), strings, table);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(table.size());
+            for (String value : table) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                ensure(buffer, channel, 4 + bytes.length);
+                buffer.putInt(bytes.length);
+                putBytes(buffer, channel, bytes);
+            }
+            ensure(buffer, channel, 4);
+            buffer.putInt(vehicles.size());
+            for (AbstractVehicle vehicle : vehicles) {
+                ensure(buffer, channel, 17);
+                if (vehicle instanceof Car car) {
+                    buffer.put(CAR);
+                    putVehicle(buffer, strings, vehicle, car.getNumberOfSeats());
+                } else {
+                    buffer.put(MOTORBIKE);
+                    putVehicle(buffer, strings, vehicle, ((Motorbike) vehicle).getCylinderCapacity());
+                }
+            }
+            ensure(buffer, channel, 4);
+            buffer.putInt(rentals.size());
+            for (Map.Entry<Client, AbstractVehicle> rental : rentals.entrySet()) {
+                Client client = rental.getKey();
+                ensure(buffer, channel, 16);
+                buffer.putInt(id(client.getName(), strings))
+                        .putInt(id(client.getSurname(), strings))
+                        .putInt(client.getBirthYear())
+                        .putInt(ranks.get(rental.getValue()));
+            }
+            ensure(buffer, channel, 4);
+            buffer.putInt(bookings.size());
+            for (Booking booking : bookings) {
+                ensure(buffer, channel, 32);
+                buffer.putInt(id(booking.client().getName(), strings))
+                        .putInt(id(booking.client().getSurname(), strings))
+                        .putInt(booking.client().getBirthYear())
+                        .putInt(ranks.get(booking.vehicle()))
+                        .putLong(booking.start().toEpochDay())
+                        .putLong(booking.end().toEpochDay());
+            }
+            flush(buffer, channel);
+            channel.force(true);
+        }
+    }
+
+    private static void intern(String value, Map<String, Integer> strings, List<String> table) {
+        if (value != null && strings.putIfAbsent(value, table.size()) == null) table.add(value);
+    }
+
+    private static int id(String value, Map<String, Integer> strings) {
+        return value == null ? NULL_STRING : strings.get(value);
+    }
+
+    private static String string(String[] strings, int id) {
+        return id == NULL_STRING ? null : strings[id];
+    }
+
+    private static void putVehicle(ByteBuffer buffer, Map<String, Integer> strings, AbstractVehicle vehicle, int spec) {
+        buffer.putInt(id(vehicle.getBrand(), strings))
+                .putInt(id(vehicle.getModel(), strings))
+                .putInt(vehicle.getProductionYear())
+                .putInt(spec);
+    }
+
+    private static void putBytes(ByteBuffer buffer, FileChannel channel, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) flush(buffer, channel);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private static void ensure(ByteBuffer buffer, FileChannel channel, int bytes) throws IOException {
+        if (buffer.remaining() < Math.min(bytes, buffer.capacity())) flush(buffer, channel);
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reconstruit une agence depuis un instantané, lu par projection mémoire du fichier
+     * @param file le fichier
+     * @return l'agence, avec sa flotte dans l'ordre d'origine et ses locations en cours
+     * @throws IOException si la lecture échoue ou si le fichier n'est pas un instantané valide
+     */
+    public static RentalAgency read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    private static RentalAgency read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not an agency snapshot");
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version: " + version);
+
+            String[] strings = new String[buffer.getInt()];
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            AbstractVehicle[] vehicles = new AbstractVehicle[buffer.getInt()];
+            for (int i = 0; i < vehicles.length; i++) {
+                byte type = buffer.get();
+                String brand = string(strings, buffer.getInt());
+                String model = string(strings, buffer.getInt());
+                int year = buffer.getInt();
+                int spec = buffer.getInt();
+                vehicles[i] = switch (type) {
+                    case CAR -> new Car(brand, model, year, spec);
+                    case MOTORBIKE -> new Motorbike(brand, model, year, spec);
+                    default -> throw new IOException("Unknown vehicle type: " + type);
+                };
+            }
+            RentalAgency agency = new RentalAgency(Arrays.asList(vehicles));
+
+            int rentals = buffer.getInt();
+            for (int i = 0; i < rentals; i++) {
+                Client client = new Client(string(strings, buffer.getInt()), string(strings, buffer.getInt()),
+                        buffer.getInt());
+                agency.rentVehicle(client, vehicles[buffer.getInt()]);
+            }
+            if (version >= 2) {
+                int bookings = buffer.getInt();
+                for (int i = 0; i < bookings; i++) {
+                    Client client = new Client(string(strings, buffer.getInt()), string(strings, buffer.getInt()),
+                            buffer.getInt());
+                    AbstractVehicle vehicle = vehicles[buffer.getInt()];
+                    agency.replayBook(new Booking(client, vehicle,
+                            LocalDate.ofEpochDay(buffer.getLong()), LocalDate.ofEpochDay(buffer.getLong())));
+                }
+            }
+            return agency;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IOException("Truncated or corrupted agency snapshot", e);
+        }
+    }
+}
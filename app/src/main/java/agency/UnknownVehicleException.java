@@ -1,14 +1,35 @@
 package agency;
 
+/**
+ * Levée quand une opération porte sur un véhicule absent de l'agence.
+ * <p>
+ * Les refus pouvant être fréquents sous charge, l'exception ne capture pas de pile d'appels et son message,
+ * qui rend le véhicule (et calcule son prix), n'est construit qu'au premier appel de {@link #getMessage()}.
+ */
 public class UnknownVehicleException extends RuntimeException {
     private final AbstractVehicle vehicle;
+    private String message;
 
     public UnknownVehicleException(AbstractVehicle vehicle) {
+        super(null, null, false, false);
         this.vehicle = vehicle;
     }
 
+    /**
+     * Retourne le véhicule inconnu
+     * @return le véhicule
+     */
+    public AbstractVehicle getVehicle() {
+        return vehicle;
+    }
+
     @Override
     public String getMessage() {
-        return "Unknown vehicle: " + vehicle.toString();
+        String built = message;
+        if (built == null) {
+            built = "Unknown vehicle: " + vehicle.toString();
+            message = built;
+        }
+        return built;
     }
 }
@@ -0,0 +1,302 @@
+package agency;
+
+import util.TimeProvider;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Index secondaires de la flotte : marque, type de véhicule et prix journalier trié.
+ * <p>
+ * Les prix des voitures dépendent de l'année courante : l'index des prix est daté et doit être
+ * reconstruit (voir {@link #pricesAreStale()}) quand l'année change. Cette classe n'est pas
+ * thread-safe, l'agence la protège par son verrou de flotte.
+ * <p>
+ * Chaque véhicule a un rang d'ajout ; les entrées et chaque groupe d'un index sont tenus dans l'ordre de ces rangs,
+ * y compris après une reconstruction de l'index des prix.
+ */
+class VehicleIndex implements FleetStatistics {
+    private final Map<AbstractVehicle, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Set<Entry>> byBrand = new HashMap<>();
+    private final Map<Class<?>, Set<Entry>> byType = new HashMap<>();
+    private final NavigableMap<Double, Set<Entry>> byPrice = new TreeMap<>();
+    private volatile int priceYear = TimeProvider.currentYearValue();
+    private long nextSequence;
+
+    /**
+     * Indexe un véhicule, qui prend le rang suivant dans l'ordre d'ajout
+     * @param vehicle le véhicule
+     */
+    void add(AbstractVehicle vehicle) {
+        Entry entry = new Entry(vehicle, nextSequence++, vehicle.dailyRentalPrice());
+        entries.put(vehicle, entry);
+        byBrand.computeIfAbsent(vehicle.getBrand(), brand -> new LinkedHashSet<>()).add(entry);
+        byType.computeIfAbsent(vehicle.getClass(), type -> new LinkedHashSet<>()).add(entry);
+        byPrice.computeIfAbsent(entry.price, price -> new LinkedHashSet<>()).add(entry);
+    }
+
+    /**
+     * Retire un véhicule de tous les index
+     * @param vehicle le véhicule
+     */
+    void remove(AbstractVehicle vehicle) {
+        Entry entry = entries.remove(vehicle);
+        if (entry == null) return;
+        removeFrom(byBrand, vehicle.getBrand(), entry);
+        removeFrom(byType, vehicle.getClass(), entry);
+        removeFrom(byPrice, entry.price, entry);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Entry>> index, K key, Entry entry) {
+        Set<Entry> bucket = index.get(key);
+        if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Retourne true si l'index des prix a été construit pour une autre année que l'année courante
+     * @return true si l'index des prix doit être reconstruit
+     */
+    boolean pricesAreStale() {
+        return priceYear != TimeProvider.currentYearValue();
+    }
+
+    /**
+     * Reconstruit l'index des prix avec les prix de l'année courante, en gardant chaque groupe dans l'ordre d'ajout
+     */
+    void reindexPrices() {
+        priceYear = TimeProvider.currentYearValue();
+        byPrice.clear();
+        for (Entry entry : entries.values()) {
+            entry.price = entry.vehicle.dailyRentalPrice();
+            byPrice.computeIfAbsent(entry.price, price -> new LinkedHashSet<>()).add(entry);
+        }
+    }
+
+    /**
+     * Retourne, dans l'ordre d'ajout, un sur-ensemble des véhicules satisfaisant le critère,
+     * ou null si le critère ne peut pas être résolu par les index (il faut alors parcourir la flotte)
+     * @param criterion le critère
+     * @return les véhicules candidats, ou null
+     */
+    List<AbstractVehicle> candidates(Predicate<? super AbstractVehicle> criterion) {
+        if (criterion instanceof BrandCriterion brand) {
+            return ordered(List.of(byBrand.getOrDefault(brand.getBrand(), Set.of())));
+        }
+        if (criterion instanceof MaxPriceCriterion price) {
+            return ordered(byPrice.headMap(price.getMaxPrice(), true).values());
+        }
+        if (criterion instanceof VehicleTypeCriterion type) {
+            return ordered(typeBuckets(type));
+        }
+        if (criterion instanceof AndCriterion and) {
+            Predicate<? super AbstractVehicle> best = mostSelective(and);
+            return best == null ? null : candidates(best);
+        }
+        if (criterion instanceof OrCriterion or) {
+            if (estimate(or) < 0) return null;
+            List<Entry> union = new ArrayList<>();
+            visitCandidates(or, union::add);
+            return vehicles(sortBySequence(union));
+        }
+        return null;
+    }
+
+    /**
+     * Parcourt, sans copie ni tri, les véhicules candidats du critère (le même sur-ensemble que
+     * {@link #candidates(Predicate)}) en transmettant leur rang d'ajout. Chaque groupe de l'index est parcouru
+     * dans l'ordre d'ajout, mais les groupes se suivent : quand le critère en couvre plusieurs, l'ordre global
+     * est donné par les rangs. Les candidats de plusieurs termes d'une disjonction ne sont transmis qu'une fois.
+     * @param criterion le critère
+     * @param action l'action appliquée à chaque candidat et à son rang
+     * @return true si le critère a été résolu par les index, false s'il faut parcourir la flotte
+     */
+    boolean forEachCandidate(Predicate<? super AbstractVehicle> criterion, ObjLongConsumer<AbstractVehicle> action) {
+        if (estimate(criterion) < 0) return false;
+        visitCandidates(criterion, entry -> action.accept(entry.vehicle, entry.sequence));
+        return true;
+    }
+
+    /**
+     * Variante de {@link #forEachCandidate(Predicate, ObjLongConsumer)} sur les entrées, pour un critère indexable
+     */
+    private void visitCandidates(Predicate<? super AbstractVehicle> criterion, Consumer<Entry> action) {
+        if (criterion instanceof BrandCriterion brand) {
+            byBrand.getOrDefault(brand.getBrand(), Set.of()).forEach(action);
+        } else if (criterion instanceof MaxPriceCriterion price) {
+            for (Set<Entry> bucket : byPrice.headMap(price.getMaxPrice(), true).values()) {
+                bucket.forEach(action);
+            }
+        } else if (criterion instanceof VehicleTypeCriterion type) {
+            for (Set<Entry> bucket : typeBuckets(type)) {
+                bucket.forEach(action);
+            }
+        } else if (criterion instanceof AndCriterion and) {
+            visitCandidates(mostSelective(and), action);
+        } else if (criterion instanceof OrCriterion or) {
+            List<Predicate<? super AbstractVehicle>> terms = or.getTerms();
+            for (int i = 0; i < terms.size(); i++) {
+                int term = i;
+                visitCandidates(terms.get(i), entry -> {
+                    // déjà transmis par un terme précédent
+                    for (int previous = 0; previous < term; previous++) {
+                        if (isCandidate(terms.get(previous), entry)) return;
+                    }
+                    action.accept(entry);
+                });
+            }
+        }
+    }
+
+    /**
+     * Retourne true si l'entrée fait partie des candidats du critère indexable
+     */
+    private boolean isCandidate(Predicate<? super AbstractVehicle> criterion, Entry entry) {
+        if (criterion instanceof BrandCriterion brand) return Objects.equals(brand.getBrand(), entry.vehicle.getBrand());
+        if (criterion instanceof MaxPriceCriterion price) return entry.price <= price.getMaxPrice();
+        if (criterion instanceof VehicleTypeCriterion type) return type.getType().isAssignableFrom(entry.vehicle.getClass());
+        if (criterion instanceof AndCriterion and) return isCandidate(mostSelective(and), entry);
+        if (criterion instanceof OrCriterion or) {
+            for (Predicate<? super AbstractVehicle> term : or.getTerms()) {
+                if (isCandidate(term, entry)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne le terme indexable de la conjonction qui a le moins de candidats, ou null
+     */
+    private Predicate<? super AbstractVehicle> mostSelective(AndCriterion and) {
+        Predicate<? super AbstractVehicle> best = null;
+        long bestSize = Long.MAX_VALUE;
+        for (Predicate<? super AbstractVehicle> term : and.getTerms()) {
+            long size = estimate(term);
+            if (size >= 0 && size < bestSize) {
+                best = term;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Parcourt les véhicules par prix croissant ou décroissant, à prix égal dans l'ordre d'ajout,
+     * tant que l'action retourne true ; chaque groupe de prix est déjà dans l'ordre d'ajout et n'est ni copié ni trié
+     * @param descending true pour les prix décroissants
+     * @param action l'action appliquée à chaque véhicule, qui retourne false pour arrêter le parcours
+     */
+    void forEachByPrice(boolean descending, Predicate<? super AbstractVehicle> action) {
+        for (Set<Entry> bucket : (descending ? byPrice.descendingMap() : byPrice).values()) {
+            for (Entry entry : bucket) {
+                if (!action.test(entry.vehicle)) return;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Estime le nombre de candidats renvoyés par {@link #candidates(Predicate)}, ou -1 si le critère n'est pas indexable
+     * @param criterion le critère
+     * @return le nombre estimé de candidats, ou -1
+     */
+    @Override
+    public long estimate(Predicate<? super AbstractVehicle> criterion) {
+        if (criterion instanceof BrandCriterion brand) {
+            return byBrand.getOrDefault(brand.getBrand(), Set.of()).size();
+        }
+        if (criterion instanceof MaxPriceCriterion price) {
+            return size(byPrice.headMap(price.getMaxPrice(), true).values());
+        }
+        if (criterion instanceof VehicleTypeCriterion type) {
+            return size(typeBuckets(type));
+        }
+        if (criterion instanceof AndCriterion and) {
+            long best = -1;
+            for (Predicate<? super AbstractVehicle> term : and.getTerms()) {
+                long size = estimate(term);
+                if (size >= 0 && (best < 0 || size < best)) best = size;
+            }
+            return best;
+        }
+        if (criterion instanceof OrCriterion or) {
+            long total = 0;
+            for (Predicate<? super AbstractVehicle> term : or.getTerms()) {
+                long size = estimate(term);
+                if (size < 0) return -1;
+                total += size;
+            }
+            return Math.min(total, entries.size());
+        }
+        return -1;
+    }
+
+    private List<Set<Entry>> typeBuckets(VehicleTypeCriterion type) {
+        List<Set<Entry>> buckets = new ArrayList<>();
+        for (Map.Entry<Class<?>, Set<Entry>> e : byType.entrySet()) {
+            if (type.getType().isAssignableFrom(e.getKey())) buckets.add(e.getValue());
+        }
+        return buckets;
+    }
+
+    private static long size(Collection<Set<Entry>> buckets) {
+        long size = 0;
+        for (Set<Entry> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private static List<AbstractVehicle> ordered(Collection<Set<Entry>> buckets) {
+        if (buckets.size() <= 1) {
+            List<AbstractVehicle> result = new ArrayList<>((int) size(buckets));
+            for (Set<Entry> bucket : buckets) {
+                for (Entry entry : bucket) {
+                    result.add(entry.vehicle);
+                }
+            }
+            return result;
+        }
+        List<Entry> merged = new ArrayList<>((int) size(buckets));
+        for (Set<Entry> bucket : buckets) {
+            merged.addAll(bucket);
+        }
+        return vehicles(sortBySequence(merged));
+    }
+
+    private static List<Entry> sortBySequence(List<Entry> entries) {
+        entries.sort(Comparator.comparingLong(entry -> entry.sequence));
+        return entries;
+    }
+
+    private static List<AbstractVehicle> vehicles(List<Entry> entries) {
+        List<AbstractVehicle> vehicles = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            vehicles.add(entry.vehicle);
+        }
+        return vehicles;
+    }
+
+    /**
+     * Entrée d'un véhicule indexé, partagée par ses trois index (égalité par identité) ;
+     * son prix est remplacé à la reconstruction de l'index des prix
+     */
+    private static final class Entry {
+        final AbstractVehicle vehicle;
+        final long sequence;
+        double price;
+
+        Entry(AbstractVehicle vehicle, long sequence, double price) {
+            this.vehicle = vehicle;
+            this.sequence = sequence;
+            this.price = price;
+        }
+    }
+}
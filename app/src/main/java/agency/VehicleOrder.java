@@ -0,0 +1,25 @@
+package agency;
+
+import java.util.Comparator;
+import java.util.function.Predicate;
+
+/**
+ * Ordres de tri usuels pour {@link RentalAgency#selectTopK(Predicate, Comparator, int)} et
+ * {@link RentalAgency#selectSorted(Predicate, Comparator, int, int)}.
+ * <p>
+ * L'agence reconnaît {@link #CHEAPEST_FIRST} et {@link #MOST_EXPENSIVE_FIRST} et peut alors parcourir son index
+ * des prix au lieu de trier les candidats ; tout autre comparateur est accepté, avec un tas borné.
+ */
+public final class VehicleOrder {
+    /** prix journalier croissant */
+    public static final Comparator<AbstractVehicle> CHEAPEST_FIRST = Comparator.comparingDouble(AbstractVehicle::dailyRentalPrice);
+    /** prix journalier décroissant */
+    public static final Comparator<AbstractVehicle> MOST_EXPENSIVE_FIRST = CHEAPEST_FIRST.reversed();
+    /** année de production décroissante */
+    public static final Comparator<AbstractVehicle> NEWEST_FIRST = Comparator.comparingInt(AbstractVehicle::getProductionYear).reversed();
+    /** année de production croissante */
+    public static final Comparator<AbstractVehicle> OLDEST_FIRST = Comparator.comparingInt(AbstractVehicle::getProductionYear);
+
+    private VehicleOrder() {
+    }
+}
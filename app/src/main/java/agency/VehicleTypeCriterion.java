@@ -0,0 +1,18 @@
+package agency;
+
+public class VehicleTypeCriterion implements Criterion {
+    private Class<? extends AbstractVehicle> type;
+
+    public VehicleTypeCriterion(Class<? extends AbstractVehicle> type) {
+        this.type = type;
+    }
+
+    public Class<? extends AbstractVehicle> getType() {
+        return type;
+    }
+
+    @Override
+    public boolean test(AbstractVehicle abstractVehicle) {
+        return type.isInstance(abstractVehicle);
+    }
+}
@@ -0,0 +1,239 @@
+package server;
+
+import agency.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Serveur HTTP local exposant une {@link RentalAgency}, un thread virtuel par requête : les attentes
+ * d'entrées-sorties (réseau, journal synchrone, export) n'immobilisent aucun thread système.
+ * <p>
+ * Les corps de requête et de réponse sont en texte (voir {@link Protocol}) :
+ * <pre>
+ * GET    /vehicles?brand=Ferrari&amp;type=car&amp;maxPrice=100   véhicules sélectionnés, un par ligne
+ * POST   /vehicles   car;Ferrari;Roma;2022;4                 201 si ajouté, 200 si déjà présent
+ * DELETE /vehicles   car;Ferrari;Roma;2022;4                 204, ou 404 si inconnu
+ * POST   /rentals    Arthur;BRATIGNY;2002;car;Ferrari;Roma;2022;4   200 et le prix journalier,
+ *                                                            404 si le véhicule est inconnu, 409 si refusée
+ * DELETE /rentals    Arthur;BRATIGNY;2002                    204, ou 409 si le client ne loue rien
+ * GET    /metrics                                            métriques au format texte de Prometheus
+ * </pre>
+ * Une requête mal formée reçoit 400, une méthode non prise en charge 405. Une opération refusée faute de
+ * pouvoir la journaliser (journal en échec ou fermé) reçoit 503, toute autre erreur 500.
+ */
+public final class AgencyServer implements Closeable {
+    private final RentalAgency agency;
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    private AgencyServer(RentalAgency agency, HttpServer http, ExecutorService executor) {
+        this.agency = agency;
+        this.http = http;
+        this.executor = executor;
+    }
+
+    /**
+     * Démarre un serveur pour l'agence
+     * @param agency l'agence
+     * @param address l'adresse d'écoute (port 0 pour un port libre quelconque)
+     * @return le serveur démarré
+     * @throws IOException si l'adresse ne peut pas être ouverte
+     */
+    public static AgencyServer start(RentalAgency agency, InetSocketAddress address) throws IOException {
+        HttpServer http = HttpServer.create(address, 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        http.setExecutor(executor);
+        AgencyServer server = new AgencyServer(agency, http, executor);
+        http.createContext("/vehicles", exchange -> server.handle(exchange, server::vehicles));
+        http.createContext("/rentals", exchange -> server.handle(exchange, server::rentals));
+        http.createContext("/metrics", exchange -> server.handle(exchange, server::metrics));
+        http.start();
+        return server;
+    }
+
+    /**
+     * Lance le serveur jusqu'à l'arrêt du processus.
+     * Arguments : [port (8080 par défaut)] [répertoire du journal (aucune persistance si absent)]
+     * @param args les arguments de la ligne de commande
+     * @throws IOException si le port ou le journal ne peuvent pas être ouverts
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        RentalJournal journal = args.length > 1
+                ? RentalJournal.open(Path.of(args[1]), RentalJournal.Durability.SYNC)
+                : null;
+        RentalAgency agency = journal == null ? new RentalAgency() : journal.agency();
+        agency.enableMetrics();
+        AgencyServer server = start(agency, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Journal not closed cleanly: " + e.getMessage());
+                }
+            }
+        }));
+        System.out.println("Rental agency listening on " + server.address());
+    }
+
+    /**
+     * Retourne l'adresse d'écoute du serveur
+     * @return l'adresse d'écoute
+     */
+    public InetSocketAddress address() {
+        return http.getAddress();
+    }
+
+    /**
+     * Arrête le serveur sans attendre les requêtes en cours
+     */
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            handler.handle(exchange);
+        } catch (RuntimeException e) {
+            // réponse déjà commencée (export interrompu) : son code ne peut plus changer
+            if (exchange.getResponseCode() != -1) throw e;
+            respond(exchange, status(e), String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int status(RuntimeException e) {
+        if (e instanceof UnknownVehicleException) return 404;
+        if (e instanceof IllegalStateException) return 409;
+        if (e instanceof IllegalArgumentException) return 400;
+        if (e instanceof UncheckedIOException) return 503;
+        return 500;
+    }
+
+    private void vehicles(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                Predicate<AbstractVehicle> criterion = criterion(exchange.getRequestURI().getRawQuery());
+                // sélection faite avant l'envoi des en-têtes, pour qu'une erreur reçoive encore son propre code ;
+                // les lignes sont ensuite envoyées par blocs, sans copie de toute la réponse en mémoire
+                List<AbstractVehicle> selected = agency.select(criterion);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    agency.exportVehicles(selected, Channels.newChannel(body));
+                }
+            }
+            case "POST" -> {
+                AbstractVehicle vehicle = Protocol.vehicle(Protocol.fields(body(exchange), Protocol.VEHICLE_FIELDS), 0);
+                respond(exchange, agency.add(vehicle) ? 201 : 200, "");
+            }
+            case "DELETE" -> {
+                agency.remove(Protocol.vehicle(Protocol.fields(body(exchange), Protocol.VEHICLE_FIELDS), 0));
+                respond(exchange, 204, "");
+            }
+            default -> respond(exchange, 405, "");
+        }
+    }
+
+    private void rentals(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "POST" -> {
+                String[] fields = Protocol.fields(body(exchange), Protocol.CLIENT_FIELDS + Protocol.VEHICLE_FIELDS);
+                AbstractVehicle vehicle = Protocol.vehicle(fields, Protocol.CLIENT_FIELDS);
+                double[] price = new double[1];
+                RentalResult result = agency.tryRent(Protocol.client(fields, 0), vehicle, rented -> price[0] = rented);
+                switch (result) {
+                    case RENTED -> respond(exchange, 200, Double.toString(price[0]));
+                    case UNKNOWN_VEHICLE -> respond(exchange, 404, result.name());
+                    default -> respond(exchange, 409, result.name());
+                }
+            }
+            case "DELETE" -> {
+                agency.returnVehicle(Protocol.client(Protocol.fields(body(exchange), Protocol.CLIENT_FIELDS), 0));
+                respond(exchange, 204, "");
+            }
+            default -> respond(exchange, 405, "");
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            respond(exchange, 405, "");
+            return;
+        }
+        respond(exchange, 200, agency.metrics().snapshot().toText());
+    }
+
+    /**
+     * Construit le critère de sélection des paramètres brand, type (car ou motorbike) et maxPrice,
+     * tous facultatifs
+     */
+    private static Predicate<AbstractVehicle> criterion(String query) {
+        List<Criterion> terms = new ArrayList<>();
+        if (query != null && !query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                String name = separator < 0 ? parameter : parameter.substring(0, separator);
+                String value = separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+                terms.add(switch (name) {
+                    case "brand" -> new BrandCriterion(value);
+                    case "type" -> new VehicleTypeCriterion(switch (value) {
+                        case "car" -> Car.class;
+                        case "motorbike" -> Motorbike.class;
+                        default -> throw new IllegalArgumentException("Unknown vehicle type: " + value);
+                    });
+                    case "maxPrice" -> {
+                        try {
+                            yield new MaxPriceCriterion(Double.parseDouble(value));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid maxPrice: " + value);
+                        }
+                    }
+                    default -> throw new IllegalArgumentException("Unknown parameter: " + name);
+                });
+            }
+        }
+        if (terms.isEmpty()) return vehicle -> true;
+        return terms.size() == 1 ? terms.get(0) : new AndCriterion(terms);
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
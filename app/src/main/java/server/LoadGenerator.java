@@ -0,0 +1,179 @@
+package server;
+
+import agency.AbstractVehicle;
+import agency.Car;
+import agency.Client;
+import agency.Motorbike;
+import util.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Générateur de charge pour {@link AgencyServer} : charge une flotte, puis des clients simulés, un thread
+ * virtuel chacun, enchaînent sans pause sélections (6 requêtes sur 10), locations et retours pendant
+ * la durée donnée. Le rapport donne le débit et les percentiles de latence côté client.
+ * <p>
+ * Les refus métier (404, 409) comptent comme des réponses ; les erreurs de transport et les
+ * autres codes, dont les erreurs du serveur (500, 503), sont comptés en erreur.
+ */
+public final class LoadGenerator {
+    private static final String[] BRANDS = {"Ferrari", "Fiat", "Renault", "BMW", "Peugeot", "Toyota", "Honda", "Ducati"};
+
+    private final URI server;
+    private final HttpClient http;
+
+    /**
+     * Construit un générateur de charge
+     * @param server l'adresse du serveur, par exemple http://localhost:8080
+     */
+    public LoadGenerator(URI server) {
+        this.server = server;
+        this.http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+    }
+
+    /**
+     * Lance une charge contre un serveur déjà démarré.
+     * Arguments : [url (http://localhost:8080)] [clients simultanés (64)] [durée en secondes (10)] [taille de flotte (10000)]
+     * @param args les arguments de la ligne de commande
+     * @throws Exception si la flotte ne peut pas être chargée
+     */
+    public static void main(String[] args) throws Exception {
+        URI server = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        int fleetSize = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        LoadGenerator generator = new LoadGenerator(server);
+        List<AbstractVehicle> fleet = generator.loadFleet(fleetSize, clients);
+        System.out.println(generator.run(fleet, clients, duration));
+    }
+
+    /**
+     * Génère et ajoute au serveur une flotte de véhicules
+     * @param size le nombre de véhicules
+     * @param parallelism le nombre de requêtes d'ajout simultanées
+     * @return les véhicules ajoutés
+     * @throws Exception si un ajout échoue
+     */
+    public List<AbstractVehicle> loadFleet(int size, int parallelism) throws Exception {
+        List<AbstractVehicle> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String brand = BRANDS[i % BRANDS.length];
+            fleet.add(i % 4 == 0
+                    ? new Motorbike(brand, "Load-" + i, 2000 + i % 25, 125 + i % 1000)
+                    : new Car(brand, "Load-" + i, 2000 + i % 25, 2 + i % 6));
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> pending = new ArrayList<>(parallelism);
+            for (int worker = 0; worker < parallelism; worker++) {
+                int first = worker;
+                pending.add(executor.submit(() -> {
+                    for (int i = first; i < size; i += parallelism) {
+                        int status = send("POST", "/vehicles", Protocol.format(fleet.get(i)));
+                        if (status != 200 && status != 201) throw new IOException("Vehicle not added: HTTP " + status);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        }
+        return fleet;
+    }
+
+    /**
+     * Exécute la charge
+     * @param fleet les véhicules présents sur le serveur
+     * @param clients le nombre de clients simultanés
+     * @param duration la durée de la charge
+     * @return le rapport
+     * @throws InterruptedException si l'attente des clients est interrompue
+     */
+    public Report run(List<AbstractVehicle> fleet, int clients, Duration duration) throws InterruptedException {
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int id = 0; id < clients; id++) {
+                Client client = new Client("Load", "Client-" + id, 1980 + id % 40);
+                SplittableRandom random = new SplittableRandom(id);
+                executor.execute(() -> simulate(client, fleet, random, deadline, latencies, errors));
+            }
+        }
+        return new Report(latencies.snapshot(), errors.sum(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void simulate(Client client, List<AbstractVehicle> fleet, SplittableRandom random, long deadline,
+                          LatencyHistogram latencies, LongAdder errors) {
+        boolean renting = false;
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            try {
+                int status;
+                if (random.nextInt(10) < 6) {
+                    String brand = BRANDS[random.nextInt(BRANDS.length)];
+                    status = send("GET", "/vehicles?brand=" + brand + "&maxPrice=" + (20 + random.nextInt(60)), null);
+                } else if (renting) {
+                    status = send("DELETE", "/rentals", Protocol.format(client));
+                    renting = false;
+                } else {
+                    AbstractVehicle vehicle = fleet.get(random.nextInt(fleet.size()));
+                    status = send("POST", "/rentals", Protocol.format(client) + ';' + Protocol.format(vehicle));
+                    renting = status == 200;
+                }
+                latencies.record(System.nanoTime() - start);
+                if (status >= 400 && status != 404 && status != 409) errors.increment();
+            } catch (IOException e) {
+                errors.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body);
+        HttpRequest request = HttpRequest.newBuilder(server.resolve(path)).method(method, publisher).build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Résultat d'une charge
+     * @param latencies les latences des requêtes ayant reçu une réponse
+     * @param errors le nombre d'erreurs
+     * @param elapsed la durée effective
+     */
+    public record Report(LatencyHistogram.Snapshot latencies, long errors, Duration elapsed) {
+        /**
+         * Retourne le débit de requêtes ayant reçu une réponse
+         * @return le nombre de requêtes par seconde
+         */
+        public double throughput() {
+            return latencies.count() / (elapsed.toNanos() / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d requests in %.1f s: %.0f req/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms, %d errors",
+                    latencies.count(), elapsed.toNanos() / 1e9, throughput(), latencies.valueAtPercentile(50) / 1e6,
+                    latencies.valueAtPercentile(99) / 1e6, latencies.max() / 1e6, errors);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package server;
+
+import agency.AbstractVehicle;
+import agency.Car;
+import agency.Client;
+import agency.Motorbike;
+
+/**
+ * Format texte des véhicules et des clients échangés avec {@link AgencyServer}, champs séparés par ';' :
+ * <pre>
+ * car;Ferrari;Roma;2022;4           (type, marque, modèle, année, places)
+ * motorbike;BMW;R1250;2021;1250     (type, marque, modèle, année, cylindrée)
+ * Arthur;BRATIGNY;2002              (prénom, nom, année de naissance)
+ * </pre>
+ * Une location est un client suivi d'un véhicule, sur la même ligne.
+ */
+final class Protocol {
+    static final int CLIENT_FIELDS = 3;
+    static final int VEHICLE_FIELDS = 5;
+
+    private Protocol() {
+    }
+
+    static String[] fields(String line, int expected) {
+        String[] fields = line.trim().split(";", -1);
+        if (fields.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " fields separated by ';': " + line);
+        }
+        return fields;
+    }
+
+    static Client client(String[] fields, int from) {
+        return new Client(fields[from], fields[from + 1], number(fields[from + 2]));
+    }
+
+    static AbstractVehicle vehicle(String[] fields, int from) {
+        String brand = fields[from + 1];
+        String model = fields[from + 2];
+        int year = number(fields[from + 3]);
+        int spec = number(fields[from + 4]);
+        return switch (fields[from]) {
+            case "car" -> new Car(brand, model, year, spec);
+            case "motorbike" -> new Motorbike(brand, model, year, spec);
+            default -> throw new IllegalArgumentException("Unknown vehicle type: " + fields[from]);
+        };
+    }
+
+    static String format(Client client) {
+        return client.getName() + ';' + client.getSurname() + ';' + client.getBirthYear();
+    }
+
+    static String format(AbstractVehicle vehicle) {
+        if (vehicle instanceof Car car) {
+            return "car;" + car.getBrand() + ';' + car.getModel() + ';' + car.getProductionYear() + ';' + car.getNumberOfSeats();
+        }
+        if (vehicle instanceof Motorbike motorbike) {
+            return "motorbike;" + motorbike.getBrand() + ';' + motorbike.getModel() + ';'
+                    + motorbike.getProductionYear() + ';' + motorbike.getCylinderCapacity();
+        }
+        throw new IllegalArgumentException("Unsupported vehicle type: " + vehicle.getClass().getName());
+    }
+
+    private static int number(String field) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + field);
+        }
+    }
+}
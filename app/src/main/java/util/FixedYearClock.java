@@ -0,0 +1,30 @@
+package util;
+
+import java.time.LocalDate;
+
+/**
+ * Horloge figée sur une année donnée (le jour courant est alors son 1er janvier) ou sur un jour donné, pour les tests
+ */
+public class FixedYearClock implements YearClock {
+    private final int year;
+    private final long epochDay;
+
+    public FixedYearClock(int year) {
+        this(LocalDate.of(year, 1, 1));
+    }
+
+    public FixedYearClock(LocalDate today) {
+        this.year = today.getYear();
+        this.epochDay = today.toEpochDay();
+    }
+
+    @Override
+    public int currentYear() {
+        return year;
+    }
+
+    @Override
+    public long currentEpochDay() {
+        return epochDay;
+    }
+}
@@ -0,0 +1,154 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences à buckets log-linéaires, dans l’esprit de HdrHistogram.
+ * <p>
+ * Chaque puissance de deux est découpée en {@value #SUB_BUCKETS} sous-buckets : une valeur est restituée à
+ * 1/{@value #SUB_BUCKETS} près, de la nanoseconde à plusieurs jours, dans un tableau de taille fixe.
+ * L’enregistrement ne fait aucune allocation : un incrément atomique dans une bande choisie selon le thread
+ * (pour limiter la contention entre cœurs), plus un {@link LongAdder} pour la somme des latences.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 8) * 2 - 1);
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Enregistre une latence
+     * @param nanos la latence en nanosecondes (une valeur négative compte pour 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        int stripe = stripeMask == 0 ? 0 : mix(System.identityHashCode(Thread.currentThread())) & stripeMask;
+        stripes[stripe].getAndIncrement(bucket(value));
+        total.add(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Retourne l’indice du bucket d’une valeur positive ou nulle
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Retourne la plus grande valeur rangée dans le bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Retourne un instantané de l’histogramme ; sous accès concurrents, les compteurs des bandes sont lus
+     * l’un après l’autre et peuvent ne pas correspondre exactement au même instant
+     * @return l’instantané
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        long recorded = 0;
+        for (long c : counts) {
+            recorded += c;
+        }
+        return new Snapshot(counts, recorded, total.sum(), max.get());
+    }
+
+    /**
+     * Instantané immuable d’un {@link LatencyHistogram}
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.max = max;
+        }
+
+        /**
+         * Retourne le nombre de latences enregistrées
+         * @return le nombre de latences
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Retourne la somme des latences enregistrées
+         * @return la somme, en nanosecondes
+         */
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Retourne la plus grande latence enregistrée
+         * @return la latence maximale, en nanosecondes
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Retourne la latence moyenne
+         * @return la moyenne, en nanosecondes (0 si rien n’a été enregistré)
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Retourne la latence sous laquelle se trouve la proportion donnée des enregistrements,
+         * à la précision d’un bucket près
+         * @param percentile le percentile, entre 0 et 100
+         * @return la latence, en nanosecondes (0 si rien n’a été enregistré)
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), max);
+            }
+            return max;
+        }
+    }
+}
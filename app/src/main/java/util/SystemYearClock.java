@@ -0,0 +1,53 @@
+package util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Horloge système qui met en cache l’année courante.
+ * <p>
+ * Un appel ne fait qu’une lecture de {@link Clock#millis()} comparée aux bornes de l’année en cache :
+ * aucune allocation tant que l’année ne change pas. Le cache est recalculé au passage d’une borne.
+ */
+public class SystemYearClock implements YearClock {
+    private final Clock clock;
+    private volatile CachedYear cached;
+
+    public SystemYearClock() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public SystemYearClock(Clock clock) {
+        this.clock = clock;
+        this.cached = load(clock.millis());
+    }
+
+    @Override
+    public int currentYear() {
+        CachedYear year = cached;
+        long now = clock.millis();
+        if (now < year.start || now >= year.end) {
+            year = load(now);
+            cached = year;
+        }
+        return year.value;
+    }
+
+    @Override
+    public long currentEpochDay() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    private CachedYear load(long now) {
+        ZoneId zone = clock.getZone();
+        int year = Instant.ofEpochMilli(now).atZone(zone).getYear();
+        long start = LocalDate.of(year, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = LocalDate.of(year + 1, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new CachedYear(year, start, end);
+    }
+
+    private record CachedYear(int value, long start, long end) {
+    }
+}
@@ -1,13 +1,36 @@
 package util;
 
-import java.util.Date;
-
 public class TimeProvider {
+    private static volatile YearClock clock = new SystemYearClock();
+
     /**
-     * renvoie l’année courante
+     * renvoie l’année courante, lue sur l’horloge installée (sans allocation)
      * @return l’année courante
      */
     public static int currentYearValue() {
-        return new Date().getYear() + 1900;
+        return clock.currentYear();
+    }
+
+    /**
+     * renvoie le jour courant en jours depuis l’époque, lu sur l’horloge installée
+     * @return le jour courant
+     */
+    public static long currentEpochDay() {
+        return clock.currentEpochDay();
+    }
+
+    /**
+     * remplace l’horloge utilisée par {@link #currentYearValue()} et {@link #currentEpochDay()}, par exemple par une {@link FixedYearClock} en test
+     * @param yearClock la nouvelle horloge
+     */
+    public static void setClock(YearClock yearClock) {
+        clock = yearClock;
+    }
+
+    /**
+     * réinstalle l’horloge système
+     */
+    public static void useSystemClock() {
+        clock = new SystemYearClock();
     }
 }
@@ -0,0 +1,22 @@
+package util;
+
+import java.time.LocalDate;
+
+/**
+ * Source de l’année et du jour courants, injectable dans {@link TimeProvider}
+ */
+public interface YearClock {
+    /**
+     * renvoie l’année courante
+     * @return l’année courante
+     */
+    int currentYear();
+
+    /**
+     * renvoie le jour courant, en jours depuis l’époque (par défaut, celui de l’horloge système)
+     * @return le jour courant
+     */
+    default long currentEpochDay() {
+        return LocalDate.now().toEpochDay();
+    }
+}
@@ -2,15 +2,44 @@ package agency;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import util.FixedYearClock;
+import util.TimeProvider;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +65,7 @@ class RentalAgencyTest {
     @AfterEach
     public void tearDown() {
         System.setOut(standardOut);
+        TimeProvider.useSystemClock();
     }
 
     @Test
@@ -362,4 +392,1227 @@ class RentalAgencyTest {
         // Then
         assertThat(car.getDetails()).isEqualTo("(4 seats)");
     }
-}
\ No newline at end of file
+
+    @Test
+    void test_equal_vehicles_have_same_hash_code() {
+        // Given
+        AbstractVehicle car = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle sameCar = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle motorbike = new Motorbike("Ferrari", "Roma", 2022, 500);
+
+        // Then
+        assertThat(car).isEqualTo(sameCar);
+        assertThat(car.hashCode()).isEqualTo(sameCar.hashCode());
+        assertThat(car).isNotEqualTo(motorbike);
+    }
+
+    @Test
+    void add_equal_vehicle_is_rejected() {
+        // Given
+        agency.add(new Car("Ferrari", "Roma", 2022, 4));
+
+        // When
+        boolean result = agency.add(new Car("Ferrari", "Roma", 2022, 4));
+
+        // Then
+        assertThat(result).isFalse();
+        assertThat(agency.contains(new Car("Ferrari", "Roma", 2022, 4))).isTrue();
+        assertThat(agency.getVehicles()).hasSize(1);
+    }
+
+    @Test
+    void getVehicles_keeps_insertion_order_after_remove() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+
+        // When
+        agency.remove(multipla);
+        agency.add(multipla);
+
+        // Then
+        assertThat(agency.getVehicles()).containsExactly(roma, moto, multipla);
+    }
+
+    @Test
+    void vehicleIsRented_after_return() {
+        // Given
+        agency.add(vehicle);
+        when(vehicle.dailyRentalPrice()).thenReturn(100.0);
+        agency.rentVehicle(client, vehicle);
+
+        // When
+        agency.returnVehicle(client);
+
+        // Then
+        assertThat(agency.vehicleIsRented(vehicle)).isFalse();
+        assertThat(agency.allRentedVehicles()).isEmpty();
+    }
+
+    @Test
+    void allRentedVehicles_is_a_live_read_only_view() {
+        // Given
+        var result = agency.allRentedVehicles();
+        agency.add(vehicle);
+        when(vehicle.dailyRentalPrice()).thenReturn(100.0);
+
+        // When
+        agency.rentVehicle(client, vehicle);
+
+        // Then
+        assertThat(result).containsExactly(vehicle);
+        assertThat(catchThrowable(result::clear)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rentVehicle_concurrently_keeps_one_vehicle_per_client_and_one_client_per_vehicle() throws InterruptedException {
+        // Given
+        List<AbstractVehicle> cars = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            cars.add(new Car("Fiat", "Panda " + i, 2010, 4));
+        }
+        cars.forEach(agency::add);
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            clients.add(new Client("Client", "n" + i, 1990));
+        }
+        AtomicInteger rented = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < clients.size(); i++) {
+                    Client c = clients.get((i + offset * 25) % clients.size());
+                    try {
+                        agency.rentVehicle(c, cars.get((i * 7 + offset) % cars.size()));
+                        rented.incrementAndGet();
+                    } catch (IllegalStateException ignored) {
+                        // véhicule ou client déjà pris par un autre thread
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        assertThat(agency.allRentedVehicles()).hasSize(rented.get()).doesNotHaveDuplicates();
+        assertThat(clients.stream().filter(agency::aVehicleIsRentedBy).count()).isEqualTo(rented.get());
+        assertThat(rented.get()).isLessThanOrEqualTo(cars.size());
+    }
+
+    @Test
+    void select_with_brand_and_max_price() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle dino = new Car("Ferrari", "Dino", 1970, 2);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(dino);
+
+        // When
+        var result = agency.select(new BrandCriterion("Ferrari").and(new MaxPriceCriterion(100)));
+        var result2 = agency.select(new BrandCriterion("Fiat").or(new MaxPriceCriterion(40)));
+
+        // Then
+        assertThat(result).containsExactly(dino);
+        assertThat(result2).containsExactly(multipla, dino);
+    }
+
+    @Test
+    void select_with_vehicle_type_and_unindexed_predicate() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(moto);
+
+        // When
+        var result = agency.select(new VehicleTypeCriterion(Motorbike.class));
+        var result2 = agency.select(new VehicleTypeCriterion(Car.class).or(v -> v.getProductionYear() == 2022));
+
+        // Then
+        assertThat(result).containsExactly(moto);
+        assertThat(result2).containsExactly(roma, moto);
+    }
+
+    @Test
+    void select_with_max_price_after_year_change() {
+        // Given
+        TimeProvider.setClock(new FixedYearClock(2024));
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.add(roma);
+        var before = agency.select(new MaxPriceCriterion(100));
+
+        // When
+        TimeProvider.setClock(new FixedYearClock(2030));
+        var after = agency.select(new MaxPriceCriterion(100));
+
+        // Then
+        assertThat(before).isEmpty();
+        assertThat(after).containsExactly(roma);
+    }
+
+    @Test
+    void select_with_negated_criterion() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+
+        // When
+        var result = agency.select(new BrandCriterion("Ferrari").negate());
+        var result2 = agency.select(new VehicleTypeCriterion(Car.class).and(new MaxPriceCriterion(130).negate()));
+
+        // Then
+        assertThat(result).containsExactly(multipla, moto);
+        assertThat(result2).containsExactly(roma);
+    }
+
+    @Test
+    void planner_orders_cheap_selective_terms_first_and_pushes_down_index() {
+        // Given
+        VehicleIndex index = new VehicleIndex();
+        index.add(new Car("Ferrari", "Roma", 2022, 4));
+        index.add(new Car("Fiat", "Multipla", 2005, 6));
+        index.add(new Car("Fiat", "Panda", 2010, 4));
+        CriterionPlanner planner = new CriterionPlanner(index);
+        Predicate<AbstractVehicle> adHoc = v -> v.getProductionYear() > 2000;
+        BrandCriterion ferrari = new BrandCriterion("Ferrari");
+        MaxPriceCriterion maxPrice = new MaxPriceCriterion(200);
+
+        // When
+        CriterionPlanner.Plan plan = planner.plan(maxPrice.and(adHoc).and(ferrari));
+
+        // Then
+        assertThat(plan.indexTerm()).isSameAs(ferrari);
+        assertThat(((AndCriterion) plan.residual()).getTerms()).containsExactly(adHoc, maxPrice);
+    }
+
+    @Test
+    void selectParallel_keeps_insertion_order() {
+        // Given
+        List<AbstractVehicle> cars = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            cars.add(new Car(i % 2 == 0 ? "Fiat" : "Renault", "Model " + i, 2000 + i % 20, 1 + i % 8));
+        }
+        cars.forEach(agency::add);
+        Predicate<AbstractVehicle> criterion = v -> v.getProductionYear() % 3 == 0;
+
+        // When
+        var result = agency.selectParallel(criterion);
+        var result2 = agency.selectParallel(new BrandCriterion("Fiat").and(criterion));
+
+        // Then
+        assertThat(result).containsExactlyElementsOf(agency.select(criterion));
+        assertThat(result2).containsExactlyElementsOf(agency.select(new BrandCriterion("Fiat").and(criterion)));
+    }
+
+    @Test
+    void forEachSelected_streams_matches_in_order() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+        List<AbstractVehicle> received = new ArrayList<>();
+
+        // When
+        long count = agency.forEachSelected(v -> v.getProductionYear() == 2022, received::add);
+
+        // Then
+        assertThat(count).isEqualTo(2);
+        assertThat(received).containsExactly(roma, moto);
+    }
+
+    @Test
+    void columnar_fleet_selects_like_the_agency() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+
+        // When
+        ColumnarFleet columnar = agency.toColumnar();
+
+        // Then
+        assertThat(columnar.size()).isEqualTo(3);
+        assertThat(columnar.vehicle(2)).isSameAs(moto);
+        assertThat(columnar.dailyRentalPrice(0)).isEqualTo(160.0);
+        assertThat(columnar.select(new MaxPriceCriterion(125))).containsExactly(multipla, moto);
+        assertThat(columnar.rows(new BrandCriterion("Ferrari").or(new VehicleTypeCriterion(Motorbike.class)))).containsExactly(0, 2);
+        assertThat(columnar.select(v -> v.getProductionYear() < 2010)).containsExactly(multipla);
+        assertThat(columnar.select(new BrandCriterion("Ferrari")).get(0)).isSameAs(roma);
+    }
+
+    @Test
+    void columnar_fleet_rejects_unknown_vehicle_types() {
+        // Given
+        agency.add(vehicle);
+
+        // When
+        var result = catchThrowable(() -> agency.toColumnar());
+
+        // Then
+        assertThat(result).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void car_price_switches_when_it_is_no_longer_new() {
+        // Given
+        TimeProvider.setClock(new FixedYearClock(2024));
+        Car car = new Car("Ferrari", "Roma", 2022, 4);
+
+        // When
+        TimeProvider.setClock(new FixedYearClock(2027));
+        double lastNewYearPrice = car.dailyRentalPrice();
+        TimeProvider.setClock(new FixedYearClock(2028));
+        double usedPrice = car.dailyRentalPrice();
+
+        // Then
+        assertThat(lastNewYearPrice).isEqualTo(160.0);
+        assertThat(usedPrice).isEqualTo(80.0);
+        assertThat(car.isNew()).isFalse();
+    }
+
+    @Test
+    void reprice_with_default_rules_matches_daily_rental_prices() {
+        // Given
+        agency.add(new Car("Ferrari", "Roma", 2022, 4));
+        agency.add(new Car("Fiat", "Multipla", 2005, 6));
+        agency.add(new Motorbike("BMW", "Test", 2022, 500));
+
+        // When
+        double[] result = agency.reprice(RuleTablePricingEngine.DEFAULT);
+        double[] result2 = new double[3];
+        RuleTablePricingEngine.DEFAULT.computePrices(agency.toColumnar(), result2);
+
+        // Then
+        assertThat(result).containsExactly(160.0, 120.0, 125.0);
+        assertThat(result2).containsExactly(160.0, 120.0, 125.0);
+    }
+
+    @Test
+    void reprice_with_brand_type_and_season_rules() {
+        // Given
+        Properties rules = new Properties();
+        rules.setProperty("brand.Ferrari", "1.5");
+        rules.setProperty("type.motorbike", "0.8");
+        rules.setProperty("month.7", "2");
+        PricingEngine engine = RuleTablePricingEngine.fromRules(rules)
+                .withClock(Clock.fixed(Instant.parse("2024-07-14T12:00:00Z"), ZoneOffset.UTC));
+        agency.add(new Car("Ferrari", "Roma", 2022, 4));
+        agency.add(new Car("Fiat", "Multipla", 2005, 6));
+        agency.add(new Motorbike("BMW", "Test", 2022, 500));
+        double[] result2 = new double[3];
+
+        // When
+        double[] result = agency.reprice(engine);
+        engine.computePrices(agency.toColumnar(), result2);
+
+        // Then
+        assertThat(result).containsExactly(480.0, 240.0, 200.0);
+        assertThat(result2).containsExactly(480.0, 240.0, 200.0);
+    }
+
+    @Test
+    void pricing_rules_reject_unknown_keys() {
+        // Given
+        Properties rules = new Properties();
+        rules.setProperty("color.red", "2");
+
+        // When
+        var result = catchThrowable(() -> RuleTablePricingEngine.fromRules(rules));
+
+        // Then
+        assertThat(result).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void test_append_vehicle_to_builder() {
+        // Given
+        AbstractVehicle car = new Car("Ferrari", "Roma", 2022, 1);
+        StringBuilder builder = new StringBuilder("> ");
+
+        // When
+        car.appendTo(builder);
+
+        // Then
+        assertThat(builder.toString()).isEqualTo("> Car Ferrari Roma 2022 (1 seat): 40.0€");
+    }
+
+    @Test
+    void exportSelectedVehicles_to_writer_and_channel() throws Exception {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+        StringWriter writer = new StringWriter();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        long count = agency.exportSelectedVehicles(new MaxPriceCriterion(125), writer);
+        long count2 = agency.exportSelectedVehicles(new MaxPriceCriterion(125).and(v -> true), Channels.newChannel(bytes));
+
+        // Then
+        assertThat(count).isEqualTo(2);
+        assertThat(count2).isEqualTo(2);
+        assertThat(writer.toString()).isEqualTo(multipla + System.lineSeparator() + moto + System.lineSeparator());
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(writer.toString());
+    }
+
+    @Test
+    void snapshot_round_trip(@TempDir Path directory) throws Exception {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), moto);
+        Path file = directory.resolve("agency.snapshot");
+
+        // When
+        SnapshotStore.write(agency, file);
+        RentalAgency result = SnapshotStore.read(file);
+
+        // Then
+        assertThat(result.getVehicles()).containsExactly(roma, multipla, moto);
+        assertThat(result.allRentedVehicles()).containsExactly(moto);
+        assertThat(result.vehicleIsRented(roma)).isFalse();
+    }
+
+    @Test
+    void snapshot_round_trip_keeps_missing_model(@TempDir Path directory) throws Exception {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", null, 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        agency.add(roma);
+        agency.add(moto);
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma);
+        Path file = directory.resolve("agency.snapshot");
+
+        // When
+        SnapshotStore.write(agency, file);
+        RentalAgency result = SnapshotStore.read(file);
+
+        // Then
+        assertThat(result.getVehicles()).containsExactly(roma, moto);
+        assertThat(result.getVehicles().get(0).getModel()).isNull();
+        assertThat(result.allRentedVehicles()).containsExactly(roma);
+    }
+
+    @Test
+    void snapshot_read_rejects_other_files(@TempDir Path directory) throws Exception {
+        // Given
+        Path file = directory.resolve("not-a-snapshot");
+        Files.writeString(file, "hello");
+
+        // When
+        var result = catchThrowable(() -> SnapshotStore.read(file));
+
+        // Then
+        assertThat(result).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void journal_replays_operations_after_restart(@TempDir Path directory) throws Exception {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+
+        try (RentalJournal journal = RentalJournal.open(directory, RentalJournal.Durability.SYNC)) {
+            RentalAgency journaled = journal.agency();
+            journaled.add(roma);
+            journaled.add(multipla);
+            journaled.add(moto);
+            journaled.rentVehicle(client, roma);
+            journaled.returnVehicle(client);
+            journaled.rentVehicle(client, moto);
+            journaled.remove(multipla);
+            journaled.rentVehicle(client, roma, LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7));
+        }
+
+        // When
+        RentalAgency result = RentalJournal.recover(directory);
+
+        // Then
+        assertThat(result.getVehicles()).containsExactly(roma, moto);
+        assertThat(result.allRentedVehicles()).containsExactly(moto);
+        assertThat(result.isAvailable(roma, LocalDate.of(2030, 6, 7), LocalDate.of(2030, 6, 8))).isFalse();
+    }
+
+    @Test
+    void journal_compaction_keeps_state(@TempDir Path directory) throws Exception {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+
+        try (RentalJournal journal = RentalJournal.open(directory, RentalJournal.Durability.SYNC)) {
+            journal.agency().add(roma);
+            journal.agency().rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma);
+
+            // When
+            journal.compact();
+            journal.agency().add(moto);
+        }
+        RentalAgency result = RentalJournal.recover(directory);
+
+        // Then
+        assertThat(Files.exists(directory.resolve(RentalJournal.SNAPSHOT_FILE))).isTrue();
+        assertThat(result.getVehicles()).containsExactly(roma, moto);
+        assertThat(result.allRentedVehicles()).containsExactly(roma);
+    }
+
+    @Test
+    void journal_refuses_a_vehicle_it_cannot_encode(@TempDir Path directory) throws Exception {
+        // Given
+        AbstractVehicle vehicle = mock(AbstractVehicle.class);
+
+        try (RentalJournal journal = RentalJournal.open(directory, RentalJournal.Durability.SYNC)) {
+            // When
+            var result = catchThrowable(() -> journal.agency().add(vehicle));
+
+            // Then
+            assertThat(result).isInstanceOf(IllegalArgumentException.class);
+            assertThat(journal.agency().contains(vehicle)).isFalse();
+            assertThat(journal.agency().statistics().fleetSize()).isZero();
+        }
+    }
+
+    @Test
+    void refused_rental_notification_cancels_the_rental() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        agency.add(roma);
+        List<String> notified = new ArrayList<>();
+        agency.addListener(new AgencyListener() {
+            @Override
+            public void vehicleRented(Client client, AbstractVehicle vehicle) {
+                notified.add("rented");
+            }
+
+            @Override
+            public void vehicleReturned(Client client, AbstractVehicle vehicle) {
+                notified.add("returned");
+            }
+        });
+        agency.addListener(new AgencyListener() {
+            @Override
+            public void vehicleRented(Client client, AbstractVehicle vehicle) {
+                throw new UncheckedIOException(new IOException("Disk full"));
+            }
+        });
+
+        // When
+        var result = catchThrowable(() -> agency.rentVehicle(client, roma));
+
+        // Then
+        assertThat(result).isInstanceOf(UncheckedIOException.class);
+        assertThat(agency.vehicleIsRented(roma)).isFalse();
+        assertThat(agency.aVehicleIsRentedBy(client)).isFalse();
+        assertThat(agency.statistics().rentedCount()).isZero();
+        assertThat(notified).containsExactly("rented", "returned");
+    }
+
+    @Test
+    void refused_batch_rental_notifies_the_cancellation_of_applied_rentals() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        Client arthur = new Client("Arthur", "BRATIGNY", 2002);
+        Client jean = new Client("Jean", "DUPONT", 1990);
+        agency.add(roma);
+        agency.add(moto);
+        List<String> notified = new ArrayList<>();
+        agency.addListener(new AgencyListener() {
+            @Override
+            public void vehicleRented(Client client, AbstractVehicle vehicle) {
+                if (vehicle.equals(moto)) throw new UncheckedIOException(new IOException("Disk full"));
+                notified.add("rented " + client.getName());
+            }
+
+            @Override
+            public void vehicleReturned(Client client, AbstractVehicle vehicle) {
+                notified.add("returned " + client.getName());
+            }
+        });
+        Map<Client, AbstractVehicle> batch = new LinkedHashMap<>();
+        batch.put(arthur, roma);
+        batch.put(jean, moto);
+
+        // When
+        var result = catchThrowable(() -> agency.rentVehicles(batch));
+
+        // Then
+        assertThat(result).isInstanceOf(UncheckedIOException.class);
+        assertThat(agency.allRentedVehicles()).isEmpty();
+        assertThat(agency.statistics().rentedCount()).isZero();
+        assertThat(notified).containsExactly("rented Arthur", "returned Arthur");
+    }
+
+    @Test
+    void journal_ignores_a_torn_last_record(@TempDir Path directory) throws Exception {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        try (RentalJournal journal = RentalJournal.open(directory, RentalJournal.Durability.SYNC)) {
+            journal.agency().add(roma);
+        }
+        Files.write(directory.resolve(RentalJournal.JOURNAL_FILE), new byte[]{0, 0, 0, 40, 1, 2},
+                StandardOpenOption.APPEND);
+
+        // When
+        RentalAgency result = RentalJournal.recover(directory);
+
+        // Then
+        assertThat(result.getVehicles()).containsExactly(roma);
+    }
+
+    @Test
+    void an_equal_client_can_return_the_rented_vehicle() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.add(roma);
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma);
+
+        // When
+        Client sameClient = new Client("Arthur", "BRATIGNY", 2002);
+        boolean rented = agency.aVehicleIsRentedBy(sameClient);
+        agency.returnVehicle(sameClient);
+
+        // Then
+        assertThat(rented).isTrue();
+        assertThat(agency.vehicleIsRented(roma)).isFalse();
+        assertThat(agency.aVehicleIsRentedBy(sameClient)).isFalse();
+    }
+
+    @Test
+    void client_registry_gives_stable_ids() {
+        // Given
+        ClientRegistry registry = new ClientRegistry();
+        Client arthur = new Client("Arthur", "BRATIGNY", 2002);
+        Client other = new Client("Arthur", "BRATIGNY", 2003);
+
+        // When
+        int id = registry.register(arthur);
+        int otherId = registry.register(other);
+
+        // Then
+        assertThat(registry.register(new Client("Arthur", "BRATIGNY", 2002))).isEqualTo(id);
+        assertThat(otherId).isNotEqualTo(id);
+        assertThat(registry.client(id)).isSameAs(arthur);
+        assertThat(registry.idOf(new Client("Unknown", "Client", 1990))).isEqualTo(-1);
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rent_vehicles_in_bulk() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        agency.add(roma);
+        agency.add(moto);
+        Map<Client, AbstractVehicle> batch = new LinkedHashMap<>();
+        batch.put(new Client("Arthur", "BRATIGNY", 2002), roma);
+        batch.put(new Client("Jean", "DUPONT", 1990), moto);
+
+        // When
+        double[] result = agency.rentVehicles(batch);
+
+        // Then
+        assertThat(result).containsExactly(roma.dailyRentalPrice(), moto.dailyRentalPrice());
+        assertThat(agency.allRentedVehicles()).containsExactlyInAnyOrder(roma, moto);
+    }
+
+    @Test
+    void rent_vehicles_in_bulk_is_all_or_nothing() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        agency.add(roma);
+        agency.add(moto);
+        agency.rentVehicle(new Client("Jean", "DUPONT", 1990), moto);
+        Map<Client, AbstractVehicle> batch = new LinkedHashMap<>();
+        batch.put(new Client("Arthur", "BRATIGNY", 2002), roma);
+        batch.put(new Client("Paul", "MARTIN", 1985), moto);
+
+        // When
+        var result = catchThrowable(() -> agency.rentVehicles(batch));
+
+        // Then
+        assertThat(result).isInstanceOf(IllegalStateException.class);
+        assertThat(agency.vehicleIsRented(roma)).isFalse();
+        assertThat(agency.aVehicleIsRentedBy(new Client("Arthur", "BRATIGNY", 2002))).isFalse();
+        assertThat(agency.getClients().size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejected_rentals_do_not_register_clients() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.add(roma);
+        agency.rentVehicle(new Client("Jean", "DUPONT", 1990), roma);
+
+        // When
+        RentalResult result = agency.tryRent(new Client("Arthur", "BRATIGNY", 2002), roma);
+        var failure = catchThrowable(() -> agency.rentVehicle(new Client("Paul", "MARTIN", 1985), roma));
+
+        // Then
+        assertThat(result).isEqualTo(RentalResult.VEHICLE_ALREADY_RENTED);
+        assertThat(failure).isInstanceOf(IllegalStateException.class);
+        assertThat(agency.getClients().size()).isEqualTo(1);
+    }
+
+    @Test
+    void return_vehicles_in_bulk() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        agency.add(roma);
+        agency.add(moto);
+        Client arthur = new Client("Arthur", "BRATIGNY", 2002);
+        Client jean = new Client("Jean", "DUPONT", 1990);
+        agency.rentVehicle(arthur, roma);
+        agency.rentVehicle(jean, moto);
+
+        // When
+        var failure = catchThrowable(() -> agency.returnVehicles(List.of(arthur, new Client("Paul", "MARTIN", 1985))));
+        agency.returnVehicles(List.of(arthur, jean));
+
+        // Then
+        assertThat(failure).isInstanceOf(IllegalStateException.class);
+        assertThat(agency.allRentedVehicles()).isEmpty();
+    }
+
+    @Test
+    void dated_rental_rejects_overlapping_bookings() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.add(roma);
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma,
+                LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7));
+
+        // When
+        var overlapping = catchThrowable(() -> agency.rentVehicle(new Client("Jean", "DUPONT", 1990), roma,
+                LocalDate.of(2030, 6, 7), LocalDate.of(2030, 6, 9)));
+        agency.rentVehicle(new Client("Jean", "DUPONT", 1990), roma, LocalDate.of(2030, 6, 8), LocalDate.of(2030, 6, 9));
+
+        // Then
+        assertThat(overlapping).isInstanceOf(IllegalStateException.class);
+        assertThat(agency.bookings(roma)).extracting(Booking::start)
+                .containsExactly(LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 8));
+    }
+
+    @Test
+    void available_vehicles_over_a_period() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma,
+                LocalDate.of(2030, 6, 1), LocalDate.of(2030, 6, 4));
+        agency.rentVehicle(new Client("Jean", "DUPONT", 1990), moto);
+
+        // When
+        List<AbstractVehicle> result = agency.availableVehicles(LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7));
+
+        // Then
+        assertThat(result).containsExactly(multipla);
+        assertThat(agency.isAvailable(roma, LocalDate.of(2030, 6, 5), LocalDate.of(2030, 6, 7))).isTrue();
+    }
+
+    @Test
+    void cancelled_booking_frees_the_vehicle() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        agency.add(roma);
+        agency.rentVehicle(client, roma, LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7));
+
+        // When
+        boolean result = agency.cancelBooking(client, roma, LocalDate.of(2030, 6, 3));
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(agency.isAvailable(roma, LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7))).isTrue();
+    }
+
+    @Test
+    void undated_rental_and_booking_covering_today_exclude_each_other() {
+        // Given
+        TimeProvider.setClock(new FixedYearClock(LocalDate.of(2030, 6, 5)));
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        agency.add(roma);
+        agency.add(multipla);
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma, LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7));
+        agency.rentVehicle(new Client("Jean", "DUPONT", 1990), multipla);
+
+        // When
+        RentalResult rental = agency.tryRent(new Client("Paul", "MARTIN", 1985), roma);
+        var booking = catchThrowable(() -> agency.rentVehicle(new Client("Paul", "MARTIN", 1985), multipla,
+                LocalDate.of(2030, 6, 5), LocalDate.of(2030, 6, 6)));
+        agency.rentVehicle(new Client("Paul", "MARTIN", 1985), multipla, LocalDate.of(2030, 6, 1), LocalDate.of(2030, 6, 4));
+
+        // Then
+        assertThat(rental).isEqualTo(RentalResult.VEHICLE_BOOKED);
+        assertThat(booking).isInstanceOf(IllegalStateException.class);
+        assertThat(agency.bookings(multipla)).extracting(Booking::start).containsExactly(LocalDate.of(2030, 6, 1));
+    }
+
+    @Test
+    void booking_a_removed_vehicle_is_refused() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.add(roma);
+        agency.remove(roma);
+
+        // When
+        var result = catchThrowable(() -> agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma,
+                LocalDate.of(2030, 6, 3), LocalDate.of(2030, 6, 7)));
+
+        // Then
+        assertThat(result).isInstanceOf(UnknownVehicleException.class);
+        assertThat(agency.bookings(roma)).isEmpty();
+    }
+
+    @Test
+    void statistics_follow_rentals_and_returns() {
+        // Given
+        TimeProvider.setClock(new FixedYearClock(2024));
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        agency.add(roma);
+        agency.add(multipla);
+        agency.add(moto);
+        Client jean = new Client("Jean", "DUPONT", 1990);
+
+        // When
+        agency.rentVehicle(new Client("Arthur", "BRATIGNY", 2002), roma);
+        agency.rentVehicle(jean, moto);
+        agency.returnVehicle(jean);
+        AgencyStatistics result = agency.statistics();
+
+        // Then
+        assertThat(result.fleetSize()).isEqualTo(3);
+        assertThat(result.rentedCount()).isEqualTo(1);
+        assertThat(result.dailyRevenue()).isEqualTo(roma.dailyRentalPrice());
+        assertThat(result.brand("Ferrari")).isEqualTo(new AgencyStatistics.Summary(1, 1, roma.dailyRentalPrice()));
+        assertThat(result.type(Motorbike.class)).isEqualTo(new AgencyStatistics.Summary(1, 0, 0));
+        assertThat(result.type(Car.class).utilisation()).isEqualTo(0.5);
+    }
+
+    @Test
+    void removing_a_rented_vehicle_ends_its_rental() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        agency.add(roma);
+        agency.add(multipla);
+        agency.rentVehicle(client, roma);
+
+        // When
+        agency.remove(roma);
+        AgencyStatistics result = agency.statistics();
+
+        // Then
+        assertThat(result.fleetSize()).isEqualTo(1);
+        assertThat(result.rentedCount()).isZero();
+        assertThat(result.dailyRevenue()).isZero();
+        assertThat(result.brand("Ferrari")).isEqualTo(new AgencyStatistics.Summary(0, 0, 0));
+        assertThat(agency.vehicleIsRented(roma)).isFalse();
+        assertThat(agency.aVehicleIsRentedBy(client)).isFalse();
+        assertThat(agency.rentVehicle(client, multipla)).isEqualTo(multipla.dailyRentalPrice());
+    }
+
+    @Test
+    void metrics_count_operations_and_rejections() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        AgencyMetrics metrics = agency.enableMetrics();
+        agency.add(roma);
+
+        // When
+        agency.rentVehicle(client, roma);
+        catchThrowable(() -> agency.rentVehicle(new Client("Jean", "DUPONT", 1990), roma));
+        catchThrowable(() -> agency.rentVehicle(client, new Car("Fiat", "Multipla", 2005, 6)));
+        agency.returnVehicle(client);
+        agency.select(new BrandCriterion("Ferrari"));
+        AgencyMetrics.Snapshot result = metrics.snapshot();
+
+        // Then
+        assertThat(result.counters()).containsEntry("add", 1L).containsEntry("rent", 1L)
+                .containsEntry("return", 1L).containsEntry("select", 1L)
+                .containsEntry("rejected_illegal_state", 1L).containsEntry("rejected_unknown_vehicle", 1L);
+        assertThat(result.latencies().get("rent").count()).isEqualTo(1);
+        assertThat(result.toText()).contains("agency_rent_total 1", "agency_select_latency_seconds_count 1");
+    }
+
+    @Test
+    void disabling_metrics_returns_the_collected_metrics() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.enableMetrics();
+        agency.add(roma);
+
+        // When
+        AgencyMetrics result = agency.disableMetrics();
+        agency.add(new Car("Fiat", "Multipla", 2005, 6));
+
+        // Then
+        assertThat(result.snapshot().counters()).containsEntry("add", 1L);
+        assertThat(agency.metrics()).isSameAs(AgencyMetrics.DISABLED);
+        assertThat(agency.enableMetrics().snapshot().counters()).containsEntry("add", 0L);
+    }
+
+    @Test
+    void disabled_metrics_record_nothing() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+
+        // When
+        agency.add(roma);
+
+        // Then
+        assertThat(agency.metrics()).isSameAs(AgencyMetrics.DISABLED);
+        assertThat(agency.metrics().snapshot().counters()).isEmpty();
+    }
+
+    @Test
+    void try_rent_reports_rejections_without_throwing() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        Client other = new Client("Jean", "DUPONT", 1990);
+        agency.add(roma);
+        agency.add(multipla);
+
+        // When
+        RentalResult rented = agency.tryRent(client, roma);
+        RentalResult vehicleTaken = agency.tryRent(other, roma);
+        RentalResult clientBusy = agency.tryRent(client, multipla);
+        RentalResult unknown = agency.tryRent(other, new Car("Renault", "Clio", 2015, 5));
+
+        // Then
+        assertThat(rented).isEqualTo(RentalResult.RENTED);
+        assertThat(vehicleTaken).isEqualTo(RentalResult.VEHICLE_ALREADY_RENTED);
+        assertThat(clientBusy).isEqualTo(RentalResult.CLIENT_ALREADY_RENTING);
+        assertThat(unknown).isEqualTo(RentalResult.UNKNOWN_VEHICLE);
+        assertThat(agency.allRentedVehicles()).containsExactly(roma);
+        assertThat(agency.vehicleIsRented(multipla)).isFalse();
+    }
+
+    @Test
+    void try_rent_reports_the_price_of_the_accepted_rental() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        agency.add(roma);
+        List<Double> prices = new ArrayList<>();
+
+        // When
+        RentalResult rented = agency.tryRent(new Client("Arthur", "BRATIGNY", 2002), roma, prices::add);
+        RentalResult refused = agency.tryRent(new Client("Paul", "MARTIN", 1985), roma, prices::add);
+
+        // Then
+        assertThat(rented).isEqualTo(RentalResult.RENTED);
+        assertThat(refused).isEqualTo(RentalResult.VEHICLE_ALREADY_RENTED);
+        assertThat(prices).containsExactly(roma.dailyRentalPrice());
+    }
+
+    @Test
+    void unknown_vehicle_exception_has_no_stack_trace() {
+        // Given
+        AbstractVehicle vehicle = mock(AbstractVehicle.class);
+
+        // When
+        UnknownVehicleException result = new UnknownVehicleException(vehicle);
+
+        // Then
+        assertThat(result.getStackTrace()).isEmpty();
+        assertThat(result.getVehicle()).isSameAs(vehicle);
+        verifyNoInteractions(vehicle);
+    }
+
+    @Test
+    void fleet_snapshot_is_shared_and_unaffected_by_later_changes() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        agency.add(roma);
+        agency.add(moto);
+        FleetSnapshot before = agency.snapshot();
+
+        // When
+        agency.add(multipla);
+        FleetSnapshot afterAdd = agency.snapshot();
+        agency.remove(roma);
+        FleetSnapshot afterRemove = agency.snapshot();
+
+        // Then
+        assertThat(agency.snapshot()).isSameAs(afterRemove);
+        assertThat(before).containsExactly(roma, moto);
+        assertThat(afterAdd).containsExactly(roma, moto, multipla);
+        assertThat(afterRemove).containsExactly(moto, multipla);
+        assertThat(afterAdd.version()).isGreaterThan(before.version());
+        assertThat(afterRemove.version()).isGreaterThan(afterAdd.version());
+        assertThat(catchThrowable(() -> afterRemove.add(roma))).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void fleet_snapshot_pages_without_copy() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        agency.add(roma);
+        agency.add(moto);
+        agency.add(multipla);
+        FleetSnapshot snapshot = agency.snapshot();
+
+        // When
+        List<AbstractVehicle> first = snapshot.page(0, 2);
+        List<AbstractVehicle> last = snapshot.page(2, 2);
+        List<AbstractVehicle> beyond = snapshot.page(5, 2);
+
+        // Then
+        assertThat(first).containsExactly(roma, moto);
+        assertThat(last).containsExactly(multipla);
+        assertThat(beyond).isEmpty();
+        assertThat(catchThrowable(() -> snapshot.page(-1, 2))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cluster_routes_vehicles_and_merges_selections() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AgencyCluster cluster = AgencyCluster.local(2, (v, shards) -> v instanceof Car ? 0 : 1);
+
+        // When
+        cluster.add(roma);
+        cluster.add(moto);
+        cluster.add(multipla);
+        List<AbstractVehicle> result = cluster.select(vehicle -> vehicle.getProductionYear() == 2022);
+
+        // Then
+        assertThat(result).containsExactly(roma, moto);
+        assertThat(cluster.shard(0).contains(multipla)).isTrue();
+        assertThat(cluster.shard(1).contains(multipla)).isFalse();
+        assertThat(cluster.total().vehicles()).isEqualTo(3);
+        assertThat(cluster.byType().get(Car.class).vehicles()).isEqualTo(2);
+    }
+
+    @Test
+    void cluster_keeps_the_rental_when_the_shard_return_fails() {
+        // Given
+        AgencyShard remote = mock(AgencyShard.class);
+        doThrow(new UncheckedIOException(new IOException("Shard unreachable"))).when(remote).returnVehicle(any());
+        AgencyCluster cluster = new AgencyCluster(List.of(remote, AgencyShard.local(new RentalAgency())),
+                (v, shards) -> v instanceof Car ? 0 : 1);
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        cluster.add(moto);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        cluster.rentVehicle(client, roma);
+
+        // When
+        var returned = catchThrowable(() -> cluster.returnVehicle(client));
+        var rented = catchThrowable(() -> cluster.rentVehicle(client, moto));
+
+        // Then
+        assertThat(returned).isInstanceOf(UncheckedIOException.class);
+        assertThat(rented).isInstanceOf(IllegalStateException.class);
+        assertThat(cluster.aVehicleIsRentedBy(client)).isTrue();
+    }
+
+    @Test
+    void cluster_allows_one_rental_per_client_across_shards() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        AgencyCluster cluster = AgencyCluster.local(2, (v, shards) -> v instanceof Car ? 0 : 1);
+        cluster.add(roma);
+        cluster.add(moto);
+        cluster.rentVehicle(client, roma);
+
+        // When
+        var result = catchThrowable(() -> cluster.rentVehicle(client, moto));
+        cluster.returnVehicle(client);
+        double price = cluster.rentVehicle(client, moto);
+
+        // Then
+        assertThat(result).isInstanceOf(IllegalStateException.class);
+        assertThat(price).isEqualTo(125.0);
+        assertThat(cluster.vehicleIsRented(roma)).isFalse();
+        assertThat(cluster.total().rented()).isEqualTo(1);
+        assertThat(cluster.byBrand().get("BMW").dailyRevenue()).isEqualTo(125.0);
+    }
+
+    @Test
+    void select_top_k_returns_the_first_vehicles_in_order() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle panda = new Car("Fiat", "Panda", 2010, 4);
+        agency.add(roma);
+        agency.add(moto);
+        agency.add(multipla);
+        agency.add(panda);
+
+        // When
+        List<AbstractVehicle> cheapest = agency.selectTopK(vehicle -> true, VehicleOrder.CHEAPEST_FIRST, 2);
+        List<AbstractVehicle> newest = agency.selectTopK(vehicle -> true, VehicleOrder.NEWEST_FIRST, 3);
+        List<AbstractVehicle> fiats = agency.selectTopK(new BrandCriterion("Fiat"), VehicleOrder.OLDEST_FIRST, 5);
+
+        // Then
+        assertThat(cheapest).containsExactly(panda, multipla);
+        assertThat(newest).containsExactly(roma, moto, panda);
+        assertThat(fiats).containsExactly(multipla, panda);
+    }
+
+    @Test
+    void select_sorted_pages_through_the_ordered_selection() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        AbstractVehicle moto = new Motorbike("BMW", "Test", 2022, 500);
+        AbstractVehicle multipla = new Car("Fiat", "Multipla", 2005, 6);
+        AbstractVehicle panda = new Car("Fiat", "Panda", 2010, 4);
+        agency.add(roma);
+        agency.add(moto);
+        agency.add(multipla);
+        agency.add(panda);
+
+        // When
+        List<AbstractVehicle> first = agency.selectSorted(vehicle -> true, VehicleOrder.MOST_EXPENSIVE_FIRST, 0, 2);
+        List<AbstractVehicle> second = agency.selectSorted(vehicle -> true, VehicleOrder.MOST_EXPENSIVE_FIRST, 2, 2);
+        List<AbstractVehicle> beyond = agency.selectSorted(vehicle -> true, VehicleOrder.MOST_EXPENSIVE_FIRST, 4, 2);
+
+        // Then
+        assertThat(first).containsExactly(roma, moto);
+        assertThat(second).containsExactly(multipla, panda);
+        assertThat(beyond).isEmpty();
+    }
+
+    static class RecordingSubscriber implements Flow.Subscriber<List<AgencyEvent>> {
+        final long demand;
+        final List<AgencyEvent> events = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+        RecordingSubscriber(long demand) {
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (demand > 0) subscription.request(demand);
+        }
+
+        @Override
+        public void onNext(List<AgencyEvent> batch) {
+            events.addAll(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    void change_feed_publishes_fleet_and_rental_events() {
+        // Given
+        AbstractVehicle roma = new Car("Ferrari", "Roma", 2022, 4);
+        Client client = new Client("Arthur", "BRATIGNY", 2002);
+        AgencyChangeFeed feed = AgencyChangeFeed.attach(agency, Runnable::run, AgencyChangeFeed.SlowSubscriberPolicy.BLOCK, 16, 8);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        feed.subscribe(subscriber);
+
+        // When
+        agency.add(roma);
+        agency.rentVehicle(client, roma);
+        agency.returnVehicle(client);
+        agency.remove(roma);
+        feed.close();
+
+        // Then
+        assertThat(subscriber.events).extracting(AgencyEvent::type).containsExactly(AgencyEvent.Type.VEHICLE_ADDED,
+                AgencyEvent.Type.VEHICLE_RENTED, AgencyEvent.Type.VEHICLE_RETURNED, AgencyEvent.Type.VEHICLE_REMOVED);
+        assertThat(subscriber.events).extracting(AgencyEvent::sequence).containsExactly(0L, 1L, 2L, 3L);
+        assertThat(subscriber.events.get(1).client()).isEqualTo(client);
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void change_feed_disconnects_slow_subscribers() {
+        // Given
+        AgencyChangeFeed feed = AgencyChangeFeed.attach(agency, Runnable::run, AgencyChangeFeed.SlowSubscriberPolicy.DISCONNECT, 2, 8);
+        RecordingSubscriber slow = new RecordingSubscriber(0);
+        RecordingSubscriber fast = new RecordingSubscriber(Long.MAX_VALUE);
+        feed.subscribe(slow);
+        feed.subscribe(fast);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            agency.add(new Car("Fiat", "Panda " + i, 2010, 4));
+        }
+
+        // Then
+        assertThat(slow.error).isInstanceOf(IllegalStateException.class);
+        assertThat(fast.error).isNull();
+        assertThat(fast.events).hasSize(10);
+        assertThat(feed.subscriberCount()).isEqualTo(1);
+        feed.close();
+    }
+}
@@ -0,0 +1,96 @@
+package server;
+
+import agency.Car;
+import agency.RentalAgency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Tag("server")
+class AgencyServerTest {
+    RentalAgency agency;
+    AgencyServer server;
+    HttpClient http;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        agency = new RentalAgency();
+        server = AgencyServer.start(agency, new InetSocketAddress("localhost", 0));
+        http = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        URI uri = URI.create("http://localhost:" + server.address().getPort() + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void adds_and_selects_vehicles() throws Exception {
+        // Given
+        send("POST", "/vehicles", "car;Ferrari;Roma;2022;4");
+        send("POST", "/vehicles", "motorbike;BMW;Test;2022;500");
+
+        // When
+        HttpResponse<String> again = send("POST", "/vehicles", "car;Ferrari;Roma;2022;4");
+        HttpResponse<String> result = send("GET", "/vehicles?brand=BMW", null);
+
+        // Then
+        assertThat(again.statusCode()).isEqualTo(200);
+        assertThat(agency.contains(new Car("Ferrari", "Roma", 2022, 4))).isTrue();
+        assertThat(result.statusCode()).isEqualTo(200);
+        assertThat(result.body()).startsWith("Motorbike BMW Test 2022").doesNotContain("Ferrari");
+    }
+
+    @Test
+    void rents_and_returns_vehicles() throws Exception {
+        // Given
+        send("POST", "/vehicles", "car;Ferrari;Roma;2022;4");
+
+        // When
+        HttpResponse<String> rented = send("POST", "/rentals", "Arthur;BRATIGNY;2002;car;Ferrari;Roma;2022;4");
+        HttpResponse<String> taken = send("POST", "/rentals", "Jean;DUPONT;1990;car;Ferrari;Roma;2022;4");
+        HttpResponse<String> unknown = send("POST", "/rentals", "Jean;DUPONT;1990;car;Fiat;Multipla;2005;6");
+        HttpResponse<String> returned = send("DELETE", "/rentals", "Arthur;BRATIGNY;2002");
+        HttpResponse<String> returnedTwice = send("DELETE", "/rentals", "Arthur;BRATIGNY;2002");
+
+        // Then
+        assertThat(rented.statusCode()).isEqualTo(200);
+        assertThat(taken.statusCode()).isEqualTo(409);
+        assertThat(taken.body()).isEqualTo("VEHICLE_ALREADY_RENTED");
+        assertThat(unknown.statusCode()).isEqualTo(404);
+        assertThat(returned.statusCode()).isEqualTo(204);
+        assertThat(returnedTwice.statusCode()).isEqualTo(409);
+        assertThat(agency.allRentedVehicles()).isEmpty();
+    }
+
+    @Test
+    void rejects_malformed_requests() throws Exception {
+        // When
+        HttpResponse<String> badVehicle = send("POST", "/vehicles", "truck;Volvo;FH;2020;2");
+        HttpResponse<String> badQuery = send("GET", "/vehicles?color=red", null);
+        HttpResponse<String> badMethod = send("PUT", "/rentals", "Arthur;BRATIGNY;2002");
+
+        // Then
+        assertThat(badVehicle.statusCode()).isEqualTo(400);
+        assertThat(badQuery.statusCode()).isEqualTo(400);
+        assertThat(badMethod.statusCode()).isEqualTo(405);
+    }
+}
@@ -2,9 +2,16 @@ package util;
 
 import static org.assertj.core.api.Assertions.*;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
 @Tag("util")
 class TimeProviderTest {
 
@@ -19,4 +26,73 @@ class TimeProviderTest {
         // Then
         assertThat(result).isEqualTo(expected);
     }
-}
\ No newline at end of file
+
+    @AfterEach
+    void tearDown() {
+        TimeProvider.useSystemClock();
+    }
+
+    @Test
+    void currentYearValue_with_fixed_clock() {
+        // Given
+        TimeProvider.setClock(new FixedYearClock(2030));
+
+        // When
+        int result = TimeProvider.currentYearValue();
+
+        // Then
+        assertThat(result).isEqualTo(2030);
+    }
+
+    @Test
+    void currentEpochDay_with_fixed_clock() {
+        // Given
+        TimeProvider.setClock(new FixedYearClock(LocalDate.of(2030, 6, 5)));
+
+        // When
+        long result = TimeProvider.currentEpochDay();
+
+        // Then
+        assertThat(result).isEqualTo(LocalDate.of(2030, 6, 5).toEpochDay());
+        assertThat(TimeProvider.currentYearValue()).isEqualTo(2030);
+    }
+
+    @Test
+    void systemYearClock_refreshes_at_year_boundary() {
+        // Given
+        MutableClock clock = new MutableClock(Instant.parse("2023-12-31T23:59:59Z"));
+        SystemYearClock yearClock = new SystemYearClock(clock);
+
+        // When
+        int before = yearClock.currentYear();
+        clock.instant = Instant.parse("2024-01-01T00:00:00Z");
+        int after = yearClock.currentYear();
+
+        // Then
+        assertThat(before).isEqualTo(2023);
+        assertThat(after).isEqualTo(2024);
+    }
+
+    private static class MutableClock extends Clock {
+        Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}